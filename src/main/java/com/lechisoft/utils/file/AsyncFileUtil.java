@@ -0,0 +1,217 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.OpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * FileUtil的异步版本，在I/O线程池中执行并返回CompletableFuture，调用线程不会阻塞在磁盘I/O上
+ * 默认线程池：运行在Java 21及以上时使用虚拟线程，否则使用有界的守护线程池；可通过setExecutor替换
+ * 返回的CompletableFuture调用cancel后，正在进行的拷贝、删除、移动会尽快停止（拷贝会回滚已拷贝的文件）
+ * 拷贝与同步的FileUtil.copy走同一条路径（setLargeFileTransfer同样生效），在每个文件拷贝前检查是否已取消
+ */
+public class AsyncFileUtil {
+
+    private static Logger logger = LoggerFactory.getLogger(AsyncFileUtil.class);
+
+    private static volatile Executor executor;
+
+    private AsyncFileUtil() {
+    }
+
+    /**
+     * 设置执行文件操作的线程池，为null时恢复默认线程池
+     *
+     * @param executor 线程池
+     * @author zhangh
+     * ${DATE}
+     */
+    public static void setExecutor(Executor executor) {
+        AsyncFileUtil.executor = executor;
+    }
+
+    /**
+     * 异步拷贝文件或目录文件到指定目录
+     *
+     * @param path           文件路径或目录路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性
+     * @param option         REPLACE_EXISTING, SKIP_EXISTING, SYNC
+     * @param token          取消标记，可为null
+     * @return 是否拷贝成功，取消后为false
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, CancellationToken token) {
+        CancellationToken t = null == token ? new CancellationToken() : token;
+        return submit(t, () -> FileUtil.copy(path, dirPath, copyAttributes, option, (String) null, t));
+    }
+
+    /**
+     * 异步拷贝文件或目录文件到指定目录，如果存在，则覆盖
+     *
+     * @param path    文件路径或目录路径
+     * @param dirPath 目录路径
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> copy(String path, String dirPath) {
+        return copy(path, dirPath, true, CopyFilesOption.REPLACE_EXISTING, null);
+    }
+
+    /**
+     * 异步删除文件或目录，取消时已删除的文件不会恢复
+     *
+     * @param path  文件路径或目录路径
+     * @param token 取消标记，可为null
+     * @return 是否删除成功，取消后为false
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> delete(String path, CancellationToken token) {
+        CancellationToken t = null == token ? new CancellationToken() : token;
+        return submit(t, () -> FileUtil.delete(path, t));
+    }
+
+    /**
+     * 异步删除文件或目录
+     *
+     * @param path 文件路径或目录路径
+     * @return 是否删除成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> delete(String path) {
+        return delete(path, null);
+    }
+
+    /**
+     * 异步移动文件或目录到指定路径，跨文件系统时取消前已移动的文件保留在目标路径
+     *
+     * @param path    文件路径
+     * @param dirPath 目标路径
+     * @param token   取消标记，可为null
+     * @return 是否移动成功，取消后为false
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> move(String path, String dirPath, CancellationToken token) {
+        CancellationToken t = null == token ? new CancellationToken() : token;
+        return submit(t, () -> FileUtil.move(path, dirPath, null, 0L, t));
+    }
+
+    /**
+     * 异步移动文件或目录到指定路径
+     *
+     * @param path    文件路径
+     * @param dirPath 目标路径
+     * @return 是否移动成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> move(String path, String dirPath) {
+        return move(path, dirPath, null);
+    }
+
+    /**
+     * 异步读取文件的所有字节
+     *
+     * @param path 文件路径
+     * @return 文件内容，读取失败时为null
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<byte[]> readBytes(String path) {
+        return submit(new CancellationToken(), () -> FileUtil.readBytes(path));
+    }
+
+    /**
+     * 异步写入字节到文件
+     *
+     * @param path   文件路径
+     * @param bytes  字节
+     * @param option 写入方式
+     * @return 是否写入成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static CompletableFuture<Boolean> writeBytes(String path, byte[] bytes, OpenOption option) {
+        return submit(new CancellationToken(), () -> FileUtil.writeBytes(path, bytes, option));
+    }
+
+    /**
+     * 提交到线程池执行，返回的future被取消时同时取消token
+     */
+    private static <T> CompletableFuture<T> submit(CancellationToken token, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                token.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        try {
+            executor().execute(() -> {
+                // 开始执行前已被取消
+                if (future.isCancelled()) {
+                    return;
+                }
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "提交异步文件操作失败，线程池已关闭或已满。", String.valueOf(e.getMessage())));
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static Executor executor() {
+        Executor e = executor;
+        if (null == e) {
+            synchronized (AsyncFileUtil.class) {
+                e = executor;
+                if (null == e) {
+                    e = createDefaultExecutor();
+                    executor = e;
+                }
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Java 21及以上使用虚拟线程（通过反射调用，源码保持Java 8兼容），否则使用有界的守护线程池
+     */
+    private static Executor createDefaultExecutor() {
+        try {
+            return (ExecutorService) java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("当前Java版本不支持虚拟线程，使用有界线程池。");
+        }
+
+        int size = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "file-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,44 @@
+package com.lechisoft.utils.file;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限速，每秒补充bytesPerSecond个令牌，桶容量为一秒的令牌数，允许短暂突发
+ */
+final class BandwidthLimiter {
+
+    private final long bytesPerSecond;
+    private double tokens;
+    private long last;
+
+    BandwidthLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = bytesPerSecond;
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * 单次可申请的最大字节数
+     */
+    long capacity() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * 申请bytes个令牌，不足时等待，bytes不能超过capacity
+     */
+    synchronized void acquire(long bytes) throws InterruptedException {
+        refill();
+        while (tokens < bytes) {
+            TimeUnit.NANOSECONDS.sleep((long) ((bytes - tokens) * 1e9 / bytesPerSecond) + 1);
+            refill();
+        }
+        tokens -= bytes;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(bytesPerSecond, tokens + (now - last) * (double) bytesPerSecond / 1e9);
+        last = now;
+    }
+}
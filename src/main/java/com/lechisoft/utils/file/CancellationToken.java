@@ -0,0 +1,24 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 取消标记，由调用方持有，调用cancel()后正在进行的遍历等操作会尽快停止
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * 取消操作
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 是否已取消
+     *
+     * @return 已取消返回true，否则返回false
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
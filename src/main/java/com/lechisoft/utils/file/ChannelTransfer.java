@@ -0,0 +1,104 @@
+package com.lechisoft.utils.file;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+
+/**
+ * 基于FileChannel.transferTo拷贝大文件，数据由内核直接在两个文件间传输（sendfile/copy_file_range），
+ * 不经过Java堆，按chunkSize分块传输
+ */
+final class ChannelTransfer {
+
+    private ChannelTransfer() {
+    }
+
+    /**
+     * 拷贝文件，失败时删除不完整的目标文件
+     *
+     * @param from           源文件
+     * @param to             目标文件
+     * @param copyAttributes 是否拷贝时间与posix权限
+     * @param replace        目标存在时是否覆盖，为false时目标存在则抛出FileAlreadyExistsException
+     * @param chunkSize      每次transferTo传输的字节数
+     */
+    static void transfer(Path from, Path to, boolean copyAttributes, boolean replace, long chunkSize) throws IOException {
+        // 目标经由符号链接指向源文件本身时，截断目标就是截断源文件；与Files.copy一致，视为已拷贝
+        if (isSameFile(from, to)) {
+            return;
+        }
+
+        boolean created = false;
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = create(to, replace)) {
+            created = true;
+            transfer(in, out, 0, in.size(), chunkSize);
+        } catch (IOException e) {
+            if (created) {
+                Files.deleteIfExists(to);
+            }
+            throw e;
+        }
+
+        if (copyAttributes) {
+            copyAttributes(from, to);
+        }
+    }
+
+    /**
+     * 创建目标文件：覆盖时先删除已存在的目标（目标是符号链接时只删除链接本身），再以CREATE_NEW创建，
+     * 不会经由目标处的符号链接截断树外的文件
+     */
+    static FileChannel create(Path to, boolean replace) throws IOException {
+        if (replace) {
+            Files.deleteIfExists(to);
+        }
+        return FileChannel.open(to, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+    }
+
+    /**
+     * 从position开始传输到size为止，目标通道的写入位置与源一致
+     * 源文件在拷贝过程中被截断，或transferTo没有传输任何数据时抛出IOException，不会返回不完整的结果
+     */
+    static void transfer(FileChannel in, FileChannel out, long position, long size, long chunkSize) throws IOException {
+        while (position < size) {
+            long n = in.transferTo(position, Math.min(chunkSize, size - position), out.position(position));
+            if (n <= 0) {
+                if (position >= in.size()) {
+                    throw new IOException("源文件在拷贝过程中被截断。");
+                }
+                throw new IOException("transferTo未传输任何数据。");
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * 目标存在且与源是同一个文件（跟随符号链接）
+     */
+    static boolean isSameFile(Path from, Path to) throws IOException {
+        return Files.exists(to) && Files.isSameFile(from, to);
+    }
+
+    static void copyAttributes(Path from, Path to) throws IOException {
+        if (from.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            PosixFileAttributes attributes = Files.readAttributes(from, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            Files.getFileAttributeView(to, PosixFileAttributeView.class).setPermissions(attributes.permissions());
+            setTimes(to, attributes);
+        } else {
+            setTimes(to, Files.readAttributes(from, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+        }
+    }
+
+    private static void setTimes(Path to, BasicFileAttributes attributes) throws IOException {
+        Files.getFileAttributeView(to, BasicFileAttributeView.class)
+                .setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+    }
+}
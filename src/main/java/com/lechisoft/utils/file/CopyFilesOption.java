@@ -4,5 +4,7 @@ public enum CopyFilesOption {
     // 存在则覆盖
     REPLACE_EXISTING,
     // 存在则跳过
-    SKIP_EXISTING;
+    SKIP_EXISTING,
+    // 存在且大小、最后修改时间均相同则跳过，否则覆盖
+    SYNC;
 }
@@ -0,0 +1,123 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 拷贝的回滚日志：只追加记录拷贝时将要新创建的文件或目录的路径，在创建之前写入，回滚时倒序删除
+ * 指定日志文件时同时逐行写入文件，进程崩溃后可由FileUtil.rollbackCopy读取日志回滚
+ */
+final class CopyJournal implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(CopyJournal.class);
+
+    private final List<String> paths = new ArrayList<>();
+    private final String journalPath;
+    private BufferedWriter writer;
+
+    /**
+     * @param journalPath 日志文件路径，为null时只记录在内存中
+     */
+    CopyJournal(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    /**
+     * 在创建之前记录将要创建的路径，可被多个线程同时调用；记录失败时不能再创建
+     */
+    synchronized boolean record(String path) {
+        paths.add(path);
+        if (null == journalPath) {
+            return true;
+        }
+        try {
+            if (null == writer) {
+                writer = Files.newBufferedWriter(Paths.get(journalPath), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            }
+            writer.write(path);
+            writer.write('\n');
+            writer.flush();
+            return true;
+        } catch (IOException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "写入拷贝日志失败。", journalPath, e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * 倒序删除已记录的路径，子文件总在其所在目录之前删除
+     */
+    synchronized void rollback() {
+        rollback(paths);
+    }
+
+    /**
+     * 拷贝结束，关闭并删除日志文件
+     */
+    @Override
+    public synchronized void close() {
+        if (null == journalPath) {
+            return;
+        }
+        try {
+            if (null != writer) {
+                writer.close();
+            }
+            Files.deleteIfExists(Paths.get(journalPath));
+        } catch (IOException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "删除拷贝日志失败。", journalPath, e.getMessage()));
+        }
+    }
+
+    /**
+     * 读取日志文件并回滚，完成后删除日志文件
+     */
+    static boolean rollback(String journalPath) {
+        try {
+            rollback(readJournal(journalPath));
+            Files.deleteIfExists(Paths.get(journalPath));
+            return true;
+        } catch (IOException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "读取拷贝日志失败。", journalPath, e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * 只读取以换行结尾的完整记录，崩溃时只写了一半的最后一行被丢弃
+     */
+    private static List<String> readJournal(String journalPath) throws IOException {
+        String content = new String(Files.readAllBytes(Paths.get(journalPath)), StandardCharsets.UTF_8);
+
+        List<String> paths = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            paths.add(content.substring(start, end));
+            start = end + 1;
+        }
+        return paths;
+    }
+
+    private static void rollback(List<String> paths) {
+        for (int i = paths.size() - 1; i >= 0; i--) {
+            String path = paths.get(i);
+            // 记录在创建之前写入，可能尚未创建
+            if (path.isEmpty() || !FileUtil.exists(path)) {
+                continue;
+            }
+            FileUtil.delete(path, false);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 拷贝、移动的进度
+ */
+public class CopyProgress {
+    // 需要拷贝的文件总数（不含目录）
+    private long totalFiles;
+    // 需要拷贝的字节总数
+    private long totalBytes;
+    // 已完成的文件数，包括跳过的
+    private long filesDone;
+    // 已完成的字节数，包括跳过的
+    private long bytesDone;
+    // 最近的拷贝速度（字节/秒）
+    private long rate;
+    // 预计剩余时间（毫秒），速度未知时为-1
+    private long eta = -1L;
+
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public void setTotalFiles(long totalFiles) {
+        this.totalFiles = totalFiles;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getFilesDone() {
+        return filesDone;
+    }
+
+    public void setFilesDone(long filesDone) {
+        this.filesDone = filesDone;
+    }
+
+    public long getBytesDone() {
+        return bytesDone;
+    }
+
+    public void setBytesDone(long bytesDone) {
+        this.bytesDone = bytesDone;
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    public void setRate(long rate) {
+        this.rate = rate;
+    }
+
+    public long getEta() {
+        return eta;
+    }
+
+    public void setEta(long eta) {
+        this.eta = eta;
+    }
+}
@@ -0,0 +1,15 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 拷贝、移动的进度监听器，在执行拷贝的线程上调用，每拷贝一块或一个文件调用一次
+ */
+@FunctionalInterface
+public interface CopyProgressListener {
+
+    /**
+     * 进度更新
+     *
+     * @param progress 当前进度，同一次拷贝中复用同一个对象，需要保存时请复制其中的值
+     */
+    void onProgress(CopyProgress progress);
+}
@@ -0,0 +1,117 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 并行删除目录树的ForkJoin任务：目录下的文件按BATCH_SIZE分批并发删除，子目录各自拆分为子任务，
+ * 所有子任务完成、目录清空后再删除目录本身（自底向上）
+ * 每项先直接删除（java.io.File.delete，文件只需一次unlink），失败时才判断是否为目录，不逐个读取属性
+ * 任一项删除失败后不再开始新的删除，已删除的不恢复
+ */
+class DeleteTask extends RecursiveTask<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static Logger logger = LoggerFactory.getLogger(DeleteTask.class);
+
+    private static final int BATCH_SIZE = 256;
+
+    private final File dir;
+    // 不为null时只删除这一批子项，不删除dir本身
+    private final List<File> batch;
+    private final AtomicBoolean failed;
+
+    DeleteTask(File dir, AtomicBoolean failed) {
+        this(dir, null, failed);
+    }
+
+    private DeleteTask(File dir, List<File> batch, AtomicBoolean failed) {
+        this.dir = dir;
+        this.batch = batch;
+        this.failed = failed;
+    }
+
+    @Override
+    protected Boolean compute() {
+        if (null != batch) {
+            return deleteAll(batch);
+        }
+
+        File[] listFiles = dir.listFiles(); // 可能会返回null
+        if (null == listFiles) {
+            logger.debug(String.join(System.getProperty("line.separator"), "删除文件失败，无法列出目录。", dir.getPath()));
+            failed.set(true);
+            return false;
+        }
+
+        boolean r;
+        if (listFiles.length <= BATCH_SIZE) {
+            r = deleteAll(Arrays.asList(listFiles));
+        } else {
+            List<DeleteTask> tasks = new ArrayList<>();
+            for (int i = 0; i < listFiles.length; i += BATCH_SIZE) {
+                List<File> files = Arrays.asList(listFiles).subList(i, Math.min(i + BATCH_SIZE, listFiles.length));
+                tasks.add(new DeleteTask(dir, files, failed));
+            }
+            r = true;
+            for (DeleteTask task : invokeAll(tasks)) {
+                r &= task.join();
+            }
+        }
+
+        // 子项全部删除后，再删除目录本身
+        return r && delete(dir);
+    }
+
+    /**
+     * 删除一批子项，文件直接删除，子目录并发删除
+     */
+    private boolean deleteAll(List<File> files) {
+        List<DeleteTask> tasks = new ArrayList<>();
+        for (File file : files) {
+            if (failed.get()) {
+                return false;
+            }
+            if (file.delete()) {
+                continue;
+            }
+            // 删除失败，非空目录拆分为子任务，否则删除失败
+            if (Files.isDirectory(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                tasks.add(new DeleteTask(file, failed));
+            } else if (!delete(file)) {
+                return false;
+            }
+        }
+
+        boolean r = true;
+        for (DeleteTask task : invokeAll(tasks)) {
+            r &= task.join();
+        }
+        return r;
+    }
+
+    /**
+     * 使用Files.delete删除，失败时记录原因
+     */
+    private boolean delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "删除文件失败。", file.getPath(), e.getMessage()));
+            failed.set(true);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于DirectoryStream分页列出单个目录下的文件，内存占用只与页大小有关
+ * 同一个实例连续调用nextPage()时复用打开的目录流；也可以凭游标在新的实例（甚至进程重启后）中继续，
+ * 此时需要从头读到游标处，开销与游标的位置成正比
+ * FileUtil.listFilesPage在两次调用之间保留目录流（最多16个，空闲60秒后由后台守护线程关闭），凭上一页的游标继续时不再从头读取；
+ * 不再继续读取的游标应调用FileUtil.closeFilesPage关闭，否则目录流（文件句柄）要到空闲超时后才释放
+ * 不递归、不排序，ListFilesOption中的RECURSION和SORT_*选项被忽略
+ */
+public class DirectoryPager implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(DirectoryPager.class);
+
+    // listFilesPage保留的目录流，按目录与游标查找，取出后即移除
+    private static final int MAX_PARKED = 16;
+    private static final long PARK_TIMEOUT = 60000L;
+    private static final Map<String, DirectoryPager> parked = new LinkedHashMap<>();
+    // 定时关闭空闲超时的目录流，有保留的目录流时才调度，线程空闲后退出
+    private static ScheduledThreadPoolExecutor reaper;
+    private static boolean reaping;
+
+    private final Path dir;
+    private int pageSize;
+    private ListFilesCriteria criteria;
+    private long parkTime;
+    private DirectoryStream<Path> stream;
+    private Iterator<Path> iterator;
+    // 已读取的目录项数量（含被过滤掉的）及最后一项的名称，用于生成游标
+    private long position;
+    private String lastName;
+
+    /**
+     * @param path     目录路径
+     * @param pageSize 页大小
+     * @param cursor   上一页返回的游标，从头开始时为null
+     * @param matcher  过滤器，可为null
+     * @param options  ListFilesOption数组，仅IGNORE_*过滤选项生效
+     */
+    public DirectoryPager(String path, int pageSize, String cursor, FileMatcher matcher, ListFilesOption... options) {
+        this.dir = Paths.get(path);
+        configure(pageSize, matcher, options);
+        open();
+        if (null != cursor) {
+            seek(cursor);
+        }
+    }
+
+    /**
+     * 读取一页，优先使用上一次调用在该游标处保留的目录流，不是最后一页时保留目录流供下一次调用
+     */
+    static FilePage page(String path, int pageSize, String cursor, FileMatcher matcher, ListFilesOption... options) {
+        DirectoryPager pager = null == cursor ? null : unpark(parkKey(path, cursor));
+        if (null == pager) {
+            pager = new DirectoryPager(path, pageSize, cursor, matcher, options);
+        } else {
+            pager.configure(pageSize, matcher, options);
+        }
+
+        FilePage page;
+        try {
+            page = pager.nextPage();
+        } catch (RuntimeException e) {
+            pager.close();
+            throw e;
+        }
+        if (null == page.getCursor()) {
+            pager.close();
+        } else {
+            park(parkKey(path, page.getCursor()), pager);
+        }
+        return page;
+    }
+
+    /**
+     * 关闭在该游标处保留的目录流，不再继续读取时调用
+     *
+     * @return 是否有保留的目录流被关闭
+     */
+    static boolean release(String path, String cursor) {
+        DirectoryPager pager = unpark(parkKey(path, cursor));
+        if (null == pager) {
+            return false;
+        }
+        pager.close();
+        return true;
+    }
+
+    private void configure(int pageSize, FileMatcher matcher, ListFilesOption... options) {
+        this.pageSize = pageSize < 1 ? 1000 : pageSize;
+        this.criteria = new ListFilesCriteria(options);
+        this.criteria.matcher = matcher;
+    }
+
+    private static String parkKey(String path, String cursor) {
+        return Paths.get(path).toAbsolutePath().normalize() + "\0" + cursor;
+    }
+
+    private static DirectoryPager unpark(String key) {
+        synchronized (parked) {
+            expire();
+            return parked.remove(key);
+        }
+    }
+
+    private static void park(String key, DirectoryPager pager) {
+        pager.parkTime = System.currentTimeMillis();
+        synchronized (parked) {
+            expire();
+            // 先移除再放入，保持按保留的先后顺序排列
+            DirectoryPager old = parked.remove(key);
+            if (null != old) {
+                old.close();
+            }
+            parked.put(key, pager);
+            if (parked.size() > MAX_PARKED) {
+                Iterator<DirectoryPager> eldest = parked.values().iterator();
+                eldest.next().close();
+                eldest.remove();
+            }
+            scheduleReap();
+        }
+    }
+
+    /**
+     * 在最早保留的目录流超时后执行一次expire，仍有保留的目录流时继续调度；调用时须持有parked的锁
+     */
+    private static void scheduleReap() {
+        if (reaping || parked.isEmpty()) {
+            return;
+        }
+        if (null == reaper) {
+            reaper = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "directory-pager-reaper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reaper.setKeepAliveTime(PARK_TIMEOUT, TimeUnit.MILLISECONDS);
+            reaper.allowCoreThreadTimeOut(true);
+        }
+        long delay = parked.values().iterator().next().parkTime + PARK_TIMEOUT - System.currentTimeMillis() + 1;
+        reaper.schedule(() -> {
+            synchronized (parked) {
+                reaping = false;
+                expire();
+                scheduleReap();
+            }
+        }, Math.max(delay, 1), TimeUnit.MILLISECONDS);
+        reaping = true;
+    }
+
+    /**
+     * 关闭空闲超时的目录流，按保留的先后顺序排列，遇到未超时的即停止
+     */
+    private static void expire() {
+        long now = System.currentTimeMillis();
+        Iterator<DirectoryPager> iterator = parked.values().iterator();
+        while (iterator.hasNext()) {
+            DirectoryPager pager = iterator.next();
+            if (now - pager.parkTime <= PARK_TIMEOUT) {
+                break;
+            }
+            pager.close();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 读取下一页
+     *
+     * @return 一页文件，最后一页的游标为null
+     */
+    public FilePage nextPage() {
+        List<File> files = new ArrayList<>(Math.min(pageSize, 1024));
+        while (files.size() < pageSize && hasNext()) {
+            Path entry = iterator.next();
+            position++;
+            lastName = entry.getFileName().toString();
+
+            File file = entry.toFile();
+            if (criteria.accept(file)) {
+                files.add(file);
+            }
+        }
+
+        FilePage page = new FilePage();
+        page.setFiles(files);
+        page.setCursor(hasNext() ? getCursor() : null);
+        return page;
+    }
+
+    /**
+     * 当前位置的游标，可用于在新的DirectoryPager中继续读取
+     *
+     * @return 游标
+     */
+    public String getCursor() {
+        String s = position + ":" + (null == lastName ? "" : lastName);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        if (null != stream) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                logger.debug(e.getMessage());
+            }
+            stream = null;
+            iterator = null;
+        }
+    }
+
+    private boolean hasNext() {
+        try {
+            return null != iterator && iterator.hasNext();
+        } catch (DirectoryIteratorException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "遍历目录失败，I/O异常。", dir.toString(), e.getMessage()));
+            return false;
+        }
+    }
+
+    private void open() {
+        close();
+        position = 0;
+        lastName = null;
+        try {
+            stream = Files.newDirectoryStream(dir);
+            iterator = stream.iterator();
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "遍历目录失败。", dir.toString(), e.getMessage()));
+        }
+    }
+
+    /**
+     * 定位到游标处：先按数量跳过，若最后一项名称与游标不符（目录已变化），则重新按名称查找
+     */
+    private void seek(String cursor) {
+        long count;
+        String name;
+        try {
+            String s = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int i = s.indexOf(':');
+            count = Long.parseLong(s.substring(0, i));
+            name = s.substring(i + 1);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "游标格式不正确。", cursor));
+            return;
+        }
+
+        skip(count);
+        if (count == 0 || name.equals(lastName)) {
+            return;
+        }
+
+        // 目录已变化，按名称重新定位，找不到时退回按数量定位
+        open();
+        while (hasNext()) {
+            Path entry = iterator.next();
+            position++;
+            lastName = entry.getFileName().toString();
+            if (name.equals(lastName)) {
+                return;
+            }
+        }
+        open();
+        skip(count);
+    }
+
+    private void skip(long count) {
+        while (position < count && hasNext()) {
+            lastName = iterator.next().getFileName().toString();
+            position++;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lechisoft.utils.file;
+
+import java.util.TreeSet;
+
+/**
+ * 预编译的扩展名集合，匹配规则与String.endsWith一致且忽略大小写
+ * 按扩展名长度对文件名末尾计算哈希后查表，不需要把文件名转为小写
+ */
+final class ExtensionSet {
+
+    // 所有扩展名的不同长度，通常只有一两种
+    private final int[] lengths;
+    // 开放寻址哈希表
+    private final int[] hashes;
+    private final String[] values;
+    private final int mask;
+
+    ExtensionSet(String... extensions) {
+        TreeSet<Integer> lengthSet = new TreeSet<>();
+        int size = 4;
+        int count = null == extensions ? 0 : extensions.length;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+
+        hashes = new int[size];
+        values = new String[size];
+        mask = size - 1;
+
+        for (int i = 0; i < count; i++) {
+            String ext = extensions[i];
+            if (null == ext) {
+                continue;
+            }
+            lengthSet.add(ext.length());
+            int hash = hash(ext, 0, ext.length());
+            int slot = hash & mask;
+            while (null != values[slot]) {
+                if (hashes[slot] == hash && values[slot].equalsIgnoreCase(ext)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            values[slot] = ext;
+        }
+
+        lengths = new int[lengthSet.size()];
+        int i = 0;
+        for (Integer length : lengthSet) {
+            lengths[i++] = length;
+        }
+    }
+
+    /**
+     * 判断名称是否以集合中的某个扩展名结尾，忽略大小写
+     */
+    boolean matches(String name) {
+        int nameLength = name.length();
+        for (int length : lengths) {
+            if (length > nameLength) {
+                break;
+            }
+            int offset = nameLength - length;
+            int hash = hash(name, offset, length);
+            int slot = hash & mask;
+            while (null != values[slot]) {
+                if (hashes[slot] == hash && name.regionMatches(true, offset, values[slot], 0, length)) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return false;
+    }
+
+    boolean isEmpty() {
+        return lengths.length == 0;
+    }
+
+    private static int hash(String s, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,26 @@
+package com.lechisoft.utils.file;
+
+public enum FileAttributeField {
+    // 名称、扩展名、路径、父路径，不读取文件属性（仅确认文件存在）
+    NAME,
+    // 是否文件、是否目录
+    TYPE,
+    // 是否隐藏
+    HIDDEN,
+    // 是否可读
+    READABLE,
+    // 是否可写
+    WRITABLE,
+    // 是否可执行
+    EXECUTABLE,
+    // 大小
+    SIZE,
+    // 创建时间
+    CREATION_TIME,
+    // 最后访问时间
+    LAST_ACCESS_TIME,
+    // 最后修改时间
+    LAST_MODIFIED_TIME,
+    // 拥有者
+    OWNER;
+}
@@ -0,0 +1,474 @@
+package com.lechisoft.utils.file;
+
+import java.io.File;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 紧凑存储大量文件属性的列式容器，用于数百万以上文件的清单
+ * 大小与时间存为long数组，布尔属性存为位标志，拥有者去重；
+ * 父路径存入目录表，每个目录只保存父目录的索引与自身名称，路径前缀在目录之间共享；
+ * 名称、扩展名、完整路径等在读取时再计算，通过FileAttributes视图访问
+ * 容器只保存属性值：listFileAttributes遍历时仍会为每个文件创建临时的FileAttributes（用于过滤与排序），但不会保留
+ * 视图的修改直接写回容器，名称、扩展名、路径都由完整名称与父路径推导，修改其中之一时其他随之改变
+ * 非线程安全
+ */
+public class FileAttributesStore implements Iterable<FileAttributes> {
+
+    private static final byte FILE = 1;
+    private static final byte DIRECTORY = 1 << 1;
+    private static final byte HIDDEN = 1 << 2;
+    private static final byte READABLE = 1 << 3;
+    private static final byte WRITABLE = 1 << 4;
+    private static final byte EXECUTABLE = 1 << 5;
+
+    private int count;
+    private String[] fullNames;
+    private int[] parents;
+    private int[] owners;
+    private byte[] flags;
+    private long[] sizes;
+    private long[] creationTimes;
+    private long[] lastAccessTimes;
+    private long[] lastModifiedTimes;
+
+    // 目录表：父目录的索引（-1表示没有父目录，此时名称为根路径）与目录名，索引-1表示null
+    private int[] dirParents = new int[16];
+    private final List<String> dirNames = new ArrayList<>();
+    private final Map<DirKey, Integer> dirIndexes = new HashMap<>();
+    // 拥有者，索引-1表示null
+    private final List<UserPrincipal> ownerList = new ArrayList<>();
+    private final Map<UserPrincipal, Integer> ownerIndexes = new HashMap<>();
+    // 很少使用，按位置稀疏存储
+    private final Map<Integer, String> backupPaths = new HashMap<>();
+    // 遍历时同一目录下的文件连续出现，缓存最近一次添加与读取的父路径
+    private String lastParent;
+    private int lastParentIndex = -1;
+    private int lastReadIndex = -1;
+    private String lastReadPath;
+
+    public FileAttributesStore() {
+        this(1024);
+    }
+
+    /**
+     * @param capacity 初始容量
+     */
+    public FileAttributesStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        fullNames = new String[capacity];
+        parents = new int[capacity];
+        owners = new int[capacity];
+        flags = new byte[capacity];
+        sizes = new long[capacity];
+        creationTimes = new long[capacity];
+        lastAccessTimes = new long[capacity];
+        lastModifiedTimes = new long[capacity];
+    }
+
+    /**
+     * 添加一个文件的属性，只保存属性值，不保存传入的对象
+     *
+     * @param attributes 文件属性
+     */
+    public void add(FileAttributes attributes) {
+        if (count == sizes.length) {
+            grow();
+        }
+
+        int i = count++;
+        fullNames[i] = attributes.getFullName();
+        parents[i] = parentIndex(attributes.getParentPath());
+        owners[i] = ownerIndex(attributes.getOwner());
+        flags[i] = (byte) ((attributes.isFile() ? FILE : 0)
+                | (attributes.isDirectory() ? DIRECTORY : 0)
+                | (attributes.isHidden() ? HIDDEN : 0)
+                | (attributes.isReadable() ? READABLE : 0)
+                | (attributes.isWritable() ? WRITABLE : 0)
+                | (attributes.isExecutable() ? EXECUTABLE : 0));
+        sizes[i] = attributes.getSize();
+        creationTimes[i] = attributes.getCreationTime();
+        lastAccessTimes[i] = attributes.getLastAccessTime();
+        lastModifiedTimes[i] = attributes.getLastModifiedTime();
+        if (null != attributes.getBackupPath()) {
+            backupPaths.put(i, attributes.getBackupPath());
+        }
+    }
+
+    /**
+     * 文件数量
+     *
+     * @return 文件数量
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 获取指定位置文件属性的视图，视图只持有位置，读取时从容器中取值
+     *
+     * @param index 位置
+     * @return FileAttributes视图
+     */
+    public FileAttributes get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+        View view = new View();
+        view.index = index;
+        return view;
+    }
+
+    /**
+     * 遍历所有文件属性，整个遍历过程复用同一个视图对象，如需保留请调用get(int)
+     *
+     * @return 迭代器
+     */
+    @Override
+    public Iterator<FileAttributes> iterator() {
+        View view = new View();
+        return new Iterator<FileAttributes>() {
+            private int next;
+
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            public FileAttributes next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                view.index = next++;
+                return view;
+            }
+        };
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public long getCreationTime(int index) {
+        return creationTimes[index];
+    }
+
+    public long getLastAccessTime(int index) {
+        return lastAccessTimes[index];
+    }
+
+    public long getLastModifiedTime(int index) {
+        return lastModifiedTimes[index];
+    }
+
+    public boolean isFile(int index) {
+        return (flags[index] & FILE) != 0;
+    }
+
+    public boolean isDirectory(int index) {
+        return (flags[index] & DIRECTORY) != 0;
+    }
+
+    public String getFullName(int index) {
+        return fullNames[index];
+    }
+
+    public String getParentPath(int index) {
+        return parents[index] < 0 ? null : dirPath(parents[index]);
+    }
+
+    public String getPath(int index) {
+        String parent = getParentPath(index);
+        return null == parent ? fullNames[index] : new File(parent, fullNames[index]).getPath();
+    }
+
+    private void grow() {
+        int capacity = sizes.length + (sizes.length >> 1);
+        fullNames = Arrays.copyOf(fullNames, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+        lastAccessTimes = Arrays.copyOf(lastAccessTimes, capacity);
+        lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, capacity);
+    }
+
+    private int parentIndex(String parentPath) {
+        if (null == parentPath) {
+            return -1;
+        }
+        // 先与上一个比较
+        if (parentPath.equals(lastParent)) {
+            return lastParentIndex;
+        }
+        int index = dirIndex(new File(parentPath));
+        lastParent = parentPath;
+        lastParentIndex = index;
+        return index;
+    }
+
+    /**
+     * 查找或添加目录，逐级添加其父目录
+     */
+    private int dirIndex(File dir) {
+        File parent = dir.getParentFile();
+        int parentIndex = null == parent ? -1 : dirIndex(parent);
+        DirKey key = new DirKey(parentIndex, null == parent ? dir.getPath() : dir.getName());
+        Integer index = dirIndexes.get(key);
+        if (null == index) {
+            index = dirNames.size();
+            if (index == dirParents.length) {
+                dirParents = Arrays.copyOf(dirParents, index * 2);
+            }
+            dirParents[index] = parentIndex;
+            dirNames.add(key.name);
+            dirIndexes.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * 由目录表拼出目录的路径
+     */
+    private String dirPath(int index) {
+        if (index == lastReadIndex) {
+            return lastReadPath;
+        }
+        String path = dirParents[index] < 0 ? dirNames.get(index) : new File(dirPath(dirParents[index]), dirNames.get(index)).getPath();
+        lastReadIndex = index;
+        lastReadPath = path;
+        return path;
+    }
+
+    private int ownerIndex(UserPrincipal owner) {
+        if (null == owner) {
+            return -1;
+        }
+        Integer index = ownerIndexes.get(owner);
+        if (null == index) {
+            index = ownerList.size();
+            ownerList.add(owner);
+            ownerIndexes.put(owner, index);
+        }
+        return index;
+    }
+
+    private static final class DirKey {
+        final int parent;
+        final String name;
+
+        DirKey(int parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DirKey)) {
+                return false;
+            }
+            DirKey key = (DirKey) o;
+            return parent == key.parent && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * parent + name.hashCode();
+        }
+    }
+
+    /**
+     * 容器中某个位置的视图，修改写回容器
+     */
+    private class View extends FileAttributes {
+        int index;
+
+        @Override
+        public String getFullName() {
+            return fullNames[index];
+        }
+
+        @Override
+        public String getName() {
+            String fullName = fullNames[index];
+            return fullName.lastIndexOf(".") == -1 ? fullName : fullName.substring(0, fullName.lastIndexOf("."));
+        }
+
+        @Override
+        public String getExtension() {
+            String fullName = fullNames[index];
+            return fullName.lastIndexOf(".") == -1 ? "" : fullName.substring(fullName.lastIndexOf("."));
+        }
+
+        @Override
+        public String getPath() {
+            return FileAttributesStore.this.getPath(index);
+        }
+
+        @Override
+        public String getParentPath() {
+            return FileAttributesStore.this.getParentPath(index);
+        }
+
+        @Override
+        public boolean isFile() {
+            return (flags[index] & FILE) != 0;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return (flags[index] & DIRECTORY) != 0;
+        }
+
+        @Override
+        public boolean isHidden() {
+            return (flags[index] & HIDDEN) != 0;
+        }
+
+        @Override
+        public boolean isReadable() {
+            return (flags[index] & READABLE) != 0;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return (flags[index] & WRITABLE) != 0;
+        }
+
+        @Override
+        public boolean isExecutable() {
+            return (flags[index] & EXECUTABLE) != 0;
+        }
+
+        @Override
+        public long getSize() {
+            return sizes[index];
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTimes[index];
+        }
+
+        @Override
+        public long getLastAccessTime() {
+            return lastAccessTimes[index];
+        }
+
+        @Override
+        public long getLastModifiedTime() {
+            return lastModifiedTimes[index];
+        }
+
+        @Override
+        public UserPrincipal getOwner() {
+            return owners[index] < 0 ? null : ownerList.get(owners[index]);
+        }
+
+        @Override
+        public String getBackupPath() {
+            return backupPaths.get(index);
+        }
+
+        @Override
+        public void setFullName(String fullName) {
+            fullNames[index] = fullName;
+        }
+
+        @Override
+        public void setName(String name) {
+            fullNames[index] = name + getExtension();
+        }
+
+        @Override
+        public void setExtension(String extension) {
+            fullNames[index] = getName() + (null == extension ? "" : extension);
+        }
+
+        @Override
+        public void setPath(String path) {
+            File file = new File(path);
+            parents[index] = parentIndex(file.getParent());
+            fullNames[index] = null == file.getParent() ? path : file.getName();
+        }
+
+        @Override
+        public void setParentPath(String parentPath) {
+            parents[index] = parentIndex(parentPath);
+        }
+
+        @Override
+        public void setFile(boolean file) {
+            setFlag(FILE, file);
+        }
+
+        @Override
+        public void setDirectory(boolean directory) {
+            setFlag(DIRECTORY, directory);
+        }
+
+        @Override
+        public void setHidden(boolean hidden) {
+            setFlag(HIDDEN, hidden);
+        }
+
+        @Override
+        public void setReadable(boolean readable) {
+            setFlag(READABLE, readable);
+        }
+
+        @Override
+        public void setWritable(boolean writable) {
+            setFlag(WRITABLE, writable);
+        }
+
+        @Override
+        public void setExecutable(boolean executable) {
+            setFlag(EXECUTABLE, executable);
+        }
+
+        @Override
+        public void setSize(long size) {
+            sizes[index] = size;
+        }
+
+        @Override
+        public void setCreationTime(long creationTime) {
+            creationTimes[index] = creationTime;
+        }
+
+        @Override
+        public void setLastAccessTime(long lastAccessTime) {
+            lastAccessTimes[index] = lastAccessTime;
+        }
+
+        @Override
+        public void setLastModifiedTime(long lastModifiedTime) {
+            lastModifiedTimes[index] = lastModifiedTime;
+        }
+
+        @Override
+        public void setOwner(UserPrincipal owner) {
+            owners[index] = ownerIndex(owner);
+        }
+
+        @Override
+        public void setBackupPath(String backupPath) {
+            if (null == backupPath) {
+                backupPaths.remove(index);
+            } else {
+                backupPaths.put(index, backupPath);
+            }
+        }
+
+        private void setFlag(byte flag, boolean value) {
+            flags[index] = (byte) (value ? flags[index] | flag : flags[index] & ~flag);
+        }
+    }
+}
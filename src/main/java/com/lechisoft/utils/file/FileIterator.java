@@ -0,0 +1,155 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 惰性遍历目录的迭代器，边遍历边返回，顺序与listFiles一致（先序深度优先）
+ * 未指定排序时基于DirectoryStream逐项读取，指定排序时仅将当前层目录读入内存
+ */
+class FileIterator implements Iterator<File>, Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(FileIterator.class);
+
+    private final ListFilesCriteria criteria;
+    private final Deque<Level> levels = new ArrayDeque<>();
+    private final CancellationToken token;
+    private File next;
+
+    FileIterator(File dir, ListFilesCriteria criteria) {
+        this(dir, criteria, null);
+    }
+
+    FileIterator(File dir, ListFilesCriteria criteria, CancellationToken token) {
+        this.criteria = criteria;
+        this.token = token;
+        if (dir.isDirectory()) {
+            open(dir, criteria.root(dir));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (null == next) {
+            next = advance();
+        }
+        return null != next;
+    }
+
+    @Override
+    public File next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        File file = next;
+        next = null;
+        return file;
+    }
+
+    @Override
+    public void close() {
+        while (!levels.isEmpty()) {
+            levels.pop().close();
+        }
+    }
+
+    private File advance() {
+        while (!levels.isEmpty()) {
+            // 已取消则关闭所有目录，结束遍历
+            if (null != token && token.isCancelled()) {
+                close();
+                return null;
+            }
+
+            Level level = levels.peek();
+            if (!level.files.hasNext()) {
+                levels.pop().close();
+                continue;
+            }
+
+            File file = level.files.next();
+
+            // 剪枝
+            if (criteria.pruned(level.scope, file)) {
+                continue;
+            }
+
+            // 先压入子目录，当前项返回后下一次即从子目录继续，与listFiles的顺序一致
+            if (criteria.descend(level.scope, file)) {
+                open(file, criteria.child(level.scope, file));
+            }
+            if (criteria.accept(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private void open(File dir, ListFilesCriteria.Scope scope) {
+        // 指定排序时，需要先取得当前层的全部文件
+        if (null != criteria.sortOption) {
+            File[] listFiles = dir.listFiles(); // 可能会返回null
+            if (null != listFiles) {
+                FileUtil.sort(listFiles, criteria.sortOption);
+                levels.push(new Level(Arrays.asList(listFiles).iterator(), null, scope));
+            }
+            return;
+        }
+
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath());
+            Iterator<Path> paths = stream.iterator();
+            levels.push(new Level(new Iterator<File>() {
+                public boolean hasNext() {
+                    try {
+                        return paths.hasNext();
+                    } catch (DirectoryIteratorException e) {
+                        logger.debug(String.join(System.getProperty("line.separator"), "遍历目录失败，I/O异常。", dir.getPath(), e.getMessage()));
+                        return false;
+                    }
+                }
+
+                public File next() {
+                    return paths.next().toFile();
+                }
+            }, stream, scope));
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "遍历目录失败。", dir.getPath(), e.getMessage()));
+        }
+    }
+
+    private static class Level {
+        final Iterator<File> files;
+        final Closeable stream;
+        final ListFilesCriteria.Scope scope;
+
+        Level(Iterator<File> files, Closeable stream, ListFilesCriteria.Scope scope) {
+            this.files = files;
+            this.stream = stream;
+            this.scope = scope;
+        }
+
+        void close() {
+            if (null != stream) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    logger.debug(e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.lechisoft.utils.file;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的文件过滤器，每次列出文件时只编译一次，供listFilesMatching、streamFilesMatching等对每个文件调用
+ */
+@FunctionalInterface
+public interface FileMatcher {
+
+    /**
+     * 判断文件是否匹配
+     *
+     * @param path 文件路径
+     * @return 匹配返回true，否则返回false
+     */
+    boolean matches(Path path);
+
+    /**
+     * 取反
+     *
+     * @return 与当前过滤器结果相反的过滤器
+     */
+    default FileMatcher negate() {
+        return path -> !matches(path);
+    }
+
+    /**
+     * 与另一个过滤器同时匹配
+     *
+     * @param other 另一个过滤器
+     * @return 组合后的过滤器
+     */
+    default FileMatcher and(FileMatcher other) {
+        return path -> matches(path) && other.matches(path);
+    }
+
+    /**
+     * 与另一个过滤器任一匹配
+     *
+     * @param other 另一个过滤器
+     * @return 组合后的过滤器
+     */
+    default FileMatcher or(FileMatcher other) {
+        return path -> matches(path) || other.matches(path);
+    }
+
+    /**
+     * 按扩展名匹配，忽略大小写，规则与INCLUDE_EXTENSION一致（文件名以扩展名结尾），扩展名预先放入哈希表
+     *
+     * @param extensions 扩展名，如.txt
+     * @return 过滤器
+     */
+    static FileMatcher extensions(String... extensions) {
+        ExtensionSet set = new ExtensionSet(extensions);
+        // Path.toString()会被缓存，文件名以扩展名结尾等价于路径以扩展名结尾
+        return path -> set.matches(path.toString());
+    }
+
+    /**
+     * 按glob模式匹配文件名，如*.{java,class}
+     *
+     * @param glob glob模式
+     * @return 过滤器
+     */
+    static FileMatcher glob(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return path -> {
+            Path name = path.getFileName();
+            return null != name && matcher.matches(name);
+        };
+    }
+
+    /**
+     * 按正则表达式匹配文件名（整个文件名匹配），每个线程复用同一个Matcher
+     *
+     * @param regex 正则表达式
+     * @return 过滤器
+     */
+    static FileMatcher regex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        return path -> {
+            Path name = path.getFileName();
+            return null != name && matchers.get().reset(name.toString()).matches();
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.lechisoft.utils.file;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 分页列出目录时的一页结果
+ */
+public class FilePage {
+    private List<File> files;
+    // 读取下一页的游标，最后一页为null
+    private String cursor;
+
+    public List<File> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<File> files) {
+        this.files = files;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isLast() {
+        return null == cursor;
+    }
+}
@@ -0,0 +1,137 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 按日期排序文件，每个文件只读取一次日期作为排序键，比较时不再访问文件系统
+ */
+final class FileSorter {
+
+    private static Logger logger = LoggerFactory.getLogger(FileSorter.class);
+
+    private FileSorter() {
+    }
+
+    /**
+     * 是否为排序选项
+     */
+    static boolean isSortOption(ListFilesOption option) {
+        return option == ListFilesOption.SORT_LAST_MODIFIED_DESC
+                || option == ListFilesOption.SORT_LAST_MODIFIED_ASC
+                || option == ListFilesOption.SORT_LAST_ACCESS_DESC
+                || option == ListFilesOption.SORT_LAST_ACCESS_ASC
+                || option == ListFilesOption.SORT_CREATION_DESC
+                || option == ListFilesOption.SORT_CREATION_ASC;
+    }
+
+    /**
+     * 是否为由近至远排序
+     */
+    static boolean isDesc(ListFilesOption option) {
+        return option == ListFilesOption.SORT_LAST_MODIFIED_DESC
+                || option == ListFilesOption.SORT_LAST_ACCESS_DESC
+                || option == ListFilesOption.SORT_CREATION_DESC;
+    }
+
+    /**
+     * 排序，先为每个文件取一次排序键，再按键排序（稳定排序）
+     */
+    static void sort(File[] files, ListFilesOption option) {
+        if (null == files || !isSortOption(option)) {
+            return;
+        }
+
+        Keyed[] keyed = new Keyed[files.length];
+        for (int i = 0; i < files.length; i++) {
+            keyed[i] = new Keyed(files[i], key(files[i], option));
+        }
+
+        Arrays.sort(keyed, comparator(option));
+
+        for (int i = 0; i < files.length; i++) {
+            files[i] = keyed[i].file;
+        }
+    }
+
+    /**
+     * 取排序后的前n个文件，使用容量为n的堆，不对全部文件排序
+     */
+    static List<File> top(Iterator<File> files, ListFilesOption option, int n) {
+        List<File> result = new ArrayList<>();
+        if (n <= 0 || !isSortOption(option)) {
+            return result;
+        }
+
+        // 堆顶为当前前n个中排在最后的一个
+        Comparator<Keyed> comparator = comparator(option);
+        PriorityQueue<Keyed> heap = new PriorityQueue<>(n + 1, comparator.reversed());
+
+        while (files.hasNext()) {
+            File file = files.next();
+            Keyed keyed = new Keyed(file, key(file, option));
+            if (heap.size() < n) {
+                heap.add(keyed);
+            } else if (comparator.compare(keyed, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(keyed);
+            }
+        }
+
+        Keyed[] sorted = heap.toArray(new Keyed[0]);
+        Arrays.sort(sorted, comparator);
+        for (Keyed keyed : sorted) {
+            result.add(keyed.file);
+        }
+        return result;
+    }
+
+    /**
+     * 读取排序键，读取失败时为0
+     */
+    private static long key(File file, ListFilesOption option) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            switch (option) {
+                case SORT_LAST_MODIFIED_DESC:
+                case SORT_LAST_MODIFIED_ASC:
+                    return attributes.lastModifiedTime().toMillis();
+                case SORT_LAST_ACCESS_DESC:
+                case SORT_LAST_ACCESS_ASC:
+                    return attributes.lastAccessTime().toMillis();
+                default:
+                    return attributes.creationTime().toMillis();
+            }
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "获取排序日期失败。", file.getPath(), e.getMessage()));
+            return 0L;
+        }
+    }
+
+    private static Comparator<Keyed> comparator(ListFilesOption option) {
+        Comparator<Keyed> comparator = (k1, k2) -> Long.compare(k1.key, k2.key);
+        return isDesc(option) ? comparator.reversed() : comparator;
+    }
+
+    private static class Keyed {
+        final File file;
+        final long key;
+
+        Keyed(File file, long key) {
+            this.file = file;
+            this.key = key;
+        }
+    }
+}
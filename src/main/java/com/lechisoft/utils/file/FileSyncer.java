@@ -0,0 +1,175 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * 增量同步目录树，只拷贝大小或最后修改时间不同（可选：内容不同）的文件，可选删除目标端多余的文件
+ */
+final class FileSyncer {
+
+    private static Logger logger = LoggerFactory.getLogger(FileSyncer.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileSyncer() {
+    }
+
+    static SyncResult sync(String path, String dirPath, boolean compareContent, boolean deleteExtras) {
+        SyncResult result = new SyncResult();
+        if (!FileUtil.exists(path)) {
+            logger.debug(String.join(System.getProperty("line.separator"), "同步失败，源文件不存在。", path));
+            return result;
+        }
+        FileUtil.createDirectories(dirPath);
+
+        Path fromRoot = Paths.get(path);
+        Path toRoot = Paths.get(dirPath, FileUtil.getFullName(path));
+
+        // 先同步根自身，再按先序同步其下所有文件，父目录总在子文件之前
+        boolean r = sync(fromRoot, toRoot, compareContent, result);
+        if (r && Files.isDirectory(fromRoot)) {
+            for (FileAttributes attributes : FileUtil.listFileAttributes(path, ListFilesOption.RECURSION)) {
+                Path from = Paths.get(attributes.getPath());
+                r = sync(from, toRoot.resolve(fromRoot.relativize(from)), compareContent, result);
+                if (!r) {
+                    break;
+                }
+            }
+        }
+
+        // 删除目标端多余的文件或目录
+        if (r && deleteExtras && Files.isDirectory(toRoot)) {
+            for (File file : FileUtil.listFiles(toRoot.toString(), ListFilesOption.RECURSION)) {
+                Path to = file.toPath();
+                // 所在目录已被删除
+                if (Files.notExists(to, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                if (Files.notExists(fromRoot.resolve(toRoot.relativize(to)), LinkOption.NOFOLLOW_LINKS)) {
+                    r = FileUtil.delete(to.toString());
+                    if (!r) {
+                        break;
+                    }
+                    result.setDeleted(result.getDeleted() + 1);
+                }
+            }
+        }
+
+        result.setSuccess(r);
+        return result;
+    }
+
+    /**
+     * 判断目标文件是否与源文件相同：类型相同，文件的大小与最后修改时间相同
+     */
+    static boolean isSame(Path from, Path to) {
+        try {
+            BasicFileAttributes fromAttributes = Files.readAttributes(from, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            BasicFileAttributes toAttributes = Files.readAttributes(to, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return isSame(fromAttributes, toAttributes);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static boolean isSame(BasicFileAttributes from, BasicFileAttributes to) {
+        if (from.isDirectory() || to.isDirectory()) {
+            return from.isDirectory() && to.isDirectory();
+        }
+        return from.isRegularFile() == to.isRegularFile()
+                && from.size() == to.size()
+                && from.lastModifiedTime().toMillis() == to.lastModifiedTime().toMillis();
+    }
+
+    private static boolean sync(Path from, Path to, boolean compareContent, SyncResult result) {
+        try {
+            BasicFileAttributes fromAttributes = Files.readAttributes(from, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            BasicFileAttributes toAttributes = null;
+            try {
+                toAttributes = Files.readAttributes(to, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (NoSuchFileException e) {
+                // 目标不存在，直接拷贝
+            }
+
+            if (null != toAttributes) {
+                boolean same = compareContent && fromAttributes.isRegularFile() && toAttributes.isRegularFile()
+                        ? fromAttributes.size() == toAttributes.size() && contentEquals(from, to)
+                        : isSame(fromAttributes, toAttributes);
+                if (same) {
+                    if (!fromAttributes.isDirectory()) {
+                        result.setSkipped(result.getSkipped() + 1);
+                    }
+                    return true;
+                }
+
+                // 类型不同（如文件变成了目录）时，先删除目标
+                if (fromAttributes.isDirectory() != toAttributes.isDirectory() && !FileUtil.delete(to.toString())) {
+                    return false;
+                }
+            }
+
+            if (!FileUtil.copyFile(from.toString(), to.getParent().toString(), true, CopyFilesOption.REPLACE_EXISTING, null)) {
+                return false;
+            }
+            if (!fromAttributes.isDirectory()) {
+                result.setCopied(result.getCopied() + 1);
+                result.setCopiedBytes(result.getCopiedBytes() + fromAttributes.size());
+            }
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "同步失败。", from.toString(), e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * 逐块比较两个文件的内容
+     */
+    private static boolean contentEquals(Path from, Path to) throws IOException {
+        byte[] buffer1 = new byte[BUFFER_SIZE];
+        byte[] buffer2 = new byte[BUFFER_SIZE];
+        try (InputStream in1 = Files.newInputStream(from);
+             InputStream in2 = Files.newInputStream(to)) {
+            while (true) {
+                int n1 = readFully(in1, buffer1);
+                int n2 = readFully(in2, buffer2);
+                if (n1 != n2) {
+                    return false;
+                }
+                if (n1 == 0) {
+                    return true;
+                }
+                if (n1 < BUFFER_SIZE) {
+                    return Arrays.equals(Arrays.copyOf(buffer1, n1), Arrays.copyOf(buffer2, n2));
+                }
+                if (!Arrays.equals(buffer1, buffer2)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int n = 0;
+        while (n < buffer.length) {
+            int read = in.read(buffer, n, buffer.length - n);
+            if (read < 0) {
+                break;
+            }
+            n += read;
+        }
+        return n;
+    }
+}
@@ -10,11 +10,78 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FileUtil {
 
     private static Logger logger = LoggerFactory.getLogger(FileUtil.class);
 
+    // 元数据缓存，默认关闭
+    private static volatile MetadataCache metadataCache;
+
+    /**
+     * 开启元数据缓存，开启后exists、isFile、isDirectory、getCreationTime、getLastAccessTime、
+     * getLastModifiedTime、getOwner优先使用缓存，适用于NFS等访问元数据较慢的文件系统
+     * FileUtil自身的拷贝、删除、重命名、移动、写入等操作会自动使相关路径的缓存失效，
+     * 其他途径修改的文件最多在staleness毫秒后被重新读取
+     *
+     * @param maxSize   最多缓存的路径数，超出时淘汰最久未访问的
+     * @param staleness 缓存有效期（毫秒）
+     * @author zhangh
+     * ${DATE}
+     */
+    public static void enableMetadataCache(int maxSize, long staleness) {
+        metadataCache = new MetadataCache(maxSize, staleness);
+    }
+
+    /**
+     * 关闭元数据缓存
+     *
+     * @author zhangh
+     * ${DATE}
+     */
+    public static void disableMetadataCache() {
+        metadataCache = null;
+    }
+
+    /**
+     * 使指定路径及其下所有路径的元数据缓存失效，用于通过其他途径修改了文件的情况
+     *
+     * @param path 文件路径
+     * @author zhangh
+     * ${DATE}
+     */
+    public static void invalidateMetadata(String path) {
+        MetadataCache cache = metadataCache;
+        if (null != cache) {
+            cache.invalidate(path);
+        }
+    }
+
+    /**
+     * FileUtil修改文件后使缓存失效，包括路径下所有路径及各级父目录（父目录可能新建，修改时间也已改变）
+     */
+    static void metadataChanged(String path) {
+        MetadataCache cache = metadataCache;
+        if (null != cache) {
+            cache.invalidate(path);
+            cache.invalidateAncestors(path);
+        }
+    }
+
+    /**
+     * 获取缓存的元数据，未开启缓存或读取失败时返回null
+     */
+    private static MetadataCache.Entry cachedMetadata(String path) {
+        MetadataCache cache = metadataCache;
+        return null == cache ? null : cache.get(path);
+    }
+
     /**
      * 获取指定路径的文件
      *
@@ -36,41 +103,131 @@ public class FileUtil {
      * ${DATE}
      */
     public static FileAttributes getFileAttributes(String path) {
+        return getFileAttributes(path, FileAttributeField.values());
+    }
+
+    /**
+     * 获取指定路径文件的部分属性，只读取需要的属性，未指定的属性保持默认值
+     * 时间、大小、类型与拥有者在支持posix的文件系统上通过一次PosixFileAttributes读取获得，
+     * 读写执行权限仅在指定时才检查
+     *
+     * @param path   文件路径
+     * @param fields 需要的属性
+     * @return FileAttributes对象，文件不存在或读取失败时为null
+     * @author zhangh
+     * ${DATE}
+     */
+    public static FileAttributes getFileAttributes(String path, FileAttributeField... fields) {
+        Set<FileAttributeField> fieldSet = EnumSet.noneOf(FileAttributeField.class);
+        fieldSet.addAll(Arrays.asList(fields));
+
         FileAttributes fileAttributes = null;
         try {
+            Path p = Paths.get(path);
             File file = new File(path);
-            BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
-            String fullName = file.getName();
-            String name = fullName.lastIndexOf(".") == -1 ? fullName : fullName.substring(0, fullName.lastIndexOf("."));
-            String extension = fullName.lastIndexOf(".") == -1 ? "" : fullName.substring(fullName.lastIndexOf("."));
 
             fileAttributes = new FileAttributes();
+            setNames(fileAttributes, path, file);
+
+            boolean needOwner = fieldSet.contains(FileAttributeField.OWNER);
+            if (needOwner
+                    || fieldSet.contains(FileAttributeField.TYPE)
+                    || fieldSet.contains(FileAttributeField.SIZE)
+                    || fieldSet.contains(FileAttributeField.CREATION_TIME)
+                    || fieldSet.contains(FileAttributeField.LAST_ACCESS_TIME)
+                    || fieldSet.contains(FileAttributeField.LAST_MODIFIED_TIME)) {
+
+                // 需要拥有者且支持posix时，一次读取同时获得拥有者
+                boolean posix = needOwner && p.getFileSystem().supportedFileAttributeViews().contains("posix");
+                BasicFileAttributes attributes = posix
+                        ? Files.readAttributes(p, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                        : Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+                fileAttributes.setFile(attributes.isRegularFile());
+                fileAttributes.setDirectory(attributes.isDirectory());
+                fileAttributes.setSize(attributes.size());
+                fileAttributes.setCreationTime(attributes.creationTime().toMillis());
+                fileAttributes.setLastAccessTime((attributes.lastAccessTime().toMillis()));
+                fileAttributes.setLastModifiedTime(attributes.lastModifiedTime().toMillis());
+                if (needOwner) {
+                    fileAttributes.setOwner(posix
+                            ? ((PosixFileAttributes) attributes).owner()
+                            : Files.getOwner(p, LinkOption.NOFOLLOW_LINKS));
+                }
+            } else if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+                // 不读取属性时同样确认文件存在，与读取属性时的结果一致
+                logger.debug(getLinesString("获取文件属性失败，文件不存在。", path));
+                return null;
+            }
 
-            fileAttributes.setFullName(fullName);
-            fileAttributes.setName(name);
-            fileAttributes.setExtension(extension);
-            fileAttributes.setPath(path);
-            fileAttributes.setParentPath(file.getParent());
-            fileAttributes.setFile(attributes.isRegularFile());
-            fileAttributes.setDirectory(attributes.isDirectory());
-            fileAttributes.setHidden(file.isHidden());
-            fileAttributes.setReadable(Files.isReadable(Paths.get(path)));
-            fileAttributes.setWritable(Files.isWritable(Paths.get(path)));
-            fileAttributes.setExecutable(Files.isExecutable(Paths.get(path)));
-            fileAttributes.setSize(attributes.size());
-            fileAttributes.setCreationTime(attributes.creationTime().toMillis());
-            fileAttributes.setLastAccessTime((attributes.lastAccessTime().toMillis()));
-            fileAttributes.setLastModifiedTime(attributes.lastModifiedTime().toMillis());
-            fileAttributes.setOwner(Files.getOwner(Paths.get(path), LinkOption.NOFOLLOW_LINKS));
+            if (fieldSet.contains(FileAttributeField.HIDDEN)) {
+                // 与listFileAttributes的判断方式一致
+                fileAttributes.setHidden(isHidden(p));
+            }
+            if (fieldSet.contains(FileAttributeField.READABLE)) {
+                fileAttributes.setReadable(Files.isReadable(p));
+            }
+            if (fieldSet.contains(FileAttributeField.WRITABLE)) {
+                fileAttributes.setWritable(Files.isWritable(p));
+            }
+            if (fieldSet.contains(FileAttributeField.EXECUTABLE)) {
+                fileAttributes.setExecutable(Files.isExecutable(p));
+            }
 
         } catch (IOException e) {
+            fileAttributes = null;
             logger.debug(getLinesString("获取文件属性失败，I/O异常。", path, e.getMessage()));
         } catch (SecurityException e) {
+            fileAttributes = null;
             logger.debug(getLinesString("获取文件属性失败，安全异常。", path, e.getMessage()));
         }
         return fileAttributes;
     }
 
+    /**
+     * 设置名称、扩展名、路径、父路径
+     */
+    private static void setNames(FileAttributes fileAttributes, String path, File file) {
+        String fullName = file.getName();
+        String name = fullName.lastIndexOf(".") == -1 ? fullName : fullName.substring(0, fullName.lastIndexOf("."));
+        String extension = fullName.lastIndexOf(".") == -1 ? "" : fullName.substring(fullName.lastIndexOf("."));
+
+        fileAttributes.setFullName(fullName);
+        fileAttributes.setName(name);
+        fileAttributes.setExtension(extension);
+        fileAttributes.setPath(path);
+        fileAttributes.setParentPath(file.getParent());
+    }
+
+    /**
+     * 根据已读取的BasicFileAttributes创建属性对象，不再访问文件系统（Windows下判断隐藏除外）
+     * 不包含读写执行权限与拥有者
+     */
+    private static FileAttributes toFileAttributes(String path, File file, BasicFileAttributes attributes) {
+        FileAttributes fileAttributes = new FileAttributes();
+
+        setNames(fileAttributes, path, file);
+        fileAttributes.setFile(attributes.isRegularFile());
+        fileAttributes.setDirectory(attributes.isDirectory());
+        fileAttributes.setHidden(isHidden(file.toPath()));
+        fileAttributes.setSize(attributes.size());
+        fileAttributes.setCreationTime(attributes.creationTime().toMillis());
+        fileAttributes.setLastAccessTime((attributes.lastAccessTime().toMillis()));
+        fileAttributes.setLastModifiedTime(attributes.lastModifiedTime().toMillis());
+        return fileAttributes;
+    }
+
+    /**
+     * 判断是否隐藏，类Unix系统下仅根据文件名判断，不访问文件系统
+     */
+    private static boolean isHidden(Path path) {
+        try {
+            return Files.isHidden(path);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
     /**
      * 设置文件属性
      *
@@ -89,6 +246,7 @@ public class FileUtil {
                 options = new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
             }
             Files.setAttribute(Paths.get(path), attribute, value, options);
+            metadataChanged(path);
             return true;
         } catch (UnsupportedOperationException e) {
             logger.debug(getLinesString("设置文件属性失败，属性视图" + Arrays.toString(options) + "不可用。", e.getMessage()));
@@ -164,6 +322,11 @@ public class FileUtil {
      */
     public static UserPrincipal getOwner(String path) {
         try {
+            MetadataCache cache = metadataCache;
+            MetadataCache.Entry entry = null == cache ? null : cache.get(path);
+            if (null != entry && entry.exists()) {
+                return cache.getOwner(path, entry);
+            }
             return Files.getOwner(Paths.get(path), LinkOption.NOFOLLOW_LINKS);
         } catch (UnsupportedOperationException e) {
             logger.debug(getLinesString("获取文件的拥有者失败，属性视图不可用。", e.getMessage()));
@@ -184,6 +347,10 @@ public class FileUtil {
      * ${DATE}
      */
     public static boolean exists(String path) {
+        MetadataCache.Entry entry = cachedMetadata(path);
+        if (null != entry) {
+            return entry.exists();
+        }
         return Files.exists(Paths.get(path), LinkOption.NOFOLLOW_LINKS);
     }
 
@@ -196,6 +363,10 @@ public class FileUtil {
      * ${DATE}
      */
     public static boolean notExists(String path) {
+        MetadataCache.Entry entry = cachedMetadata(path);
+        if (null != entry) {
+            return !entry.exists();
+        }
         return Files.notExists(Paths.get(path), LinkOption.NOFOLLOW_LINKS);
     }
 
@@ -209,6 +380,10 @@ public class FileUtil {
      */
     public static boolean isFile(String path) {
         try {
+            MetadataCache.Entry entry = cachedMetadata(path);
+            if (null != entry && !entry.isLink()) {
+                return entry.exists() && entry.attributes.isRegularFile();
+            }
             return Files.isRegularFile(Paths.get(path));
         } catch (SecurityException e) {
             logger.debug(getLinesString("判断是否文件失败，安全异常。", path, e.getMessage()));
@@ -247,6 +422,10 @@ public class FileUtil {
      */
     public static boolean isDirectory(String path) {
         try {
+            MetadataCache.Entry entry = cachedMetadata(path);
+            if (null != entry && !entry.isLink()) {
+                return entry.exists() && entry.attributes.isDirectory();
+            }
             return Files.isDirectory(Paths.get(path));
         } catch (SecurityException e) {
             logger.debug(getLinesString("判断是否目录失败，安全异常。", path, e.getMessage()));
@@ -377,6 +556,10 @@ public class FileUtil {
      */
     public static long getCreationTime(String path) {
         try {
+            MetadataCache.Entry entry = cachedMetadata(path);
+            if (null != entry && entry.exists()) {
+                return entry.attributes.creationTime().toMillis();
+            }
             BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
             return attributes.creationTime().toMillis();
         } catch (IOException e) {
@@ -410,6 +593,10 @@ public class FileUtil {
      */
     public static long getLastAccessTime(String path) {
         try {
+            MetadataCache.Entry entry = cachedMetadata(path);
+            if (null != entry && entry.exists()) {
+                return entry.attributes.lastAccessTime().toMillis();
+            }
             BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
             return attributes.lastAccessTime().toMillis();
         } catch (IOException e) {
@@ -443,6 +630,10 @@ public class FileUtil {
      */
     public static long getLastModifiedTime(String path) {
         try {
+            MetadataCache.Entry entry = cachedMetadata(path);
+            if (null != entry && entry.exists()) {
+                return entry.attributes.lastModifiedTime().toMillis();
+            }
             BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
             return attributes.lastModifiedTime().toMillis();
         } catch (IOException e) {
@@ -514,6 +705,7 @@ public class FileUtil {
             } else {
                 Files.createDirectories(Paths.get(path), attr);
             }
+            metadataChanged(path);
             return true;
         } catch (FileAlreadyExistsException e) {
             logger.debug(getLinesString("创建目录失败，目录已存在。", e.getMessage()));
@@ -566,120 +758,109 @@ public class FileUtil {
         List<File> files = new ArrayList<>();
 
         if (isDirectory(path)) {
-            boolean isRecursion = false;
-            boolean ignoreFile = false;
-            boolean ignoreDirectory = false;
-            boolean ignoreHidden = false;
-            ListFilesOption extensionOption = null;
-            ListFilesOption sortOption = null;
-
-            if (null != options) {
-                for (ListFilesOption option : options) {
-                    switch (option) {
-                        case RECURSION:
-                            isRecursion = true;
-                            break;
-                        case IGNORE_FILE:
-                            ignoreFile = true;
-                            break;
-                        case IGNORE_DIRECTORY:
-                            ignoreDirectory = true;
-                            break;
-                        case IGNORE_HIDDEN:
-                            ignoreHidden = true;
-                            break;
-                        case INCLUDE_EXTENSION:
-                            extensionOption = ListFilesOption.INCLUDE_EXTENSION;
-                            break;
-                        case EXCLUDE_EXTENSION:
-                            extensionOption = ListFilesOption.EXCLUDE_EXTENSION;
-                            break;
-                        case SORT_LAST_MODIFIED_DESC:
-                            sortOption = ListFilesOption.SORT_LAST_MODIFIED_DESC;
-                            break;
-                        case SORT_LAST_MODIFIED_ASC:
-                            sortOption = ListFilesOption.SORT_LAST_MODIFIED_ASC;
-                            break;
-                        case SORT_LAST_ACCESS_DESC:
-                            sortOption = ListFilesOption.SORT_LAST_ACCESS_DESC;
-                            break;
-                        case SORT_LAST_ACCESS_ASC:
-                            sortOption = ListFilesOption.SORT_LAST_ACCESS_ASC;
-                            break;
-                        case SORT_CREATION_DESC:
-                            sortOption = ListFilesOption.SORT_CREATION_DESC;
-                            break;
-                        case SORT_CREATION_ASC:
-                            sortOption = ListFilesOption.SORT_CREATION_ASC;
-                            break;
-                    }
-                }
-            }
+            File dir = new File(path);
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            listFiles(dir, criteria, criteria.root(dir), files);
+        }
+
+        return files;
+    }
+
+    /**
+     * 列出指定目录路径下匹配过滤器的文件，过滤器只编译一次，可与ListFilesOption组合使用
+     *
+     * @param path    目录路径
+     * @param matcher 过滤器，如FileMatcher.extensions(".txt")、FileMatcher.glob("*.log")
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 文件列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<File> listFilesMatching(String path, FileMatcher matcher, ListFilesOption... options) {
+        List<File> files = new ArrayList<>();
+
+        if (isDirectory(path)) {
+            ListFilesCriteria criteria = new ListFilesCriteria(options);
+            criteria.matcher = matcher;
+            File dir = new File(path);
+            listFiles(dir, criteria, criteria.root(dir), files);
+        }
+
+        return files;
+    }
+
+    /**
+     * 列出指定目录路径下的文件，按剪枝规则跳过不需要的目录，被剪掉的目录不会进入递归
+     *
+     * @param path       目录路径
+     * @param prune      剪枝规则，包括最大深度、隐藏目录、目录过滤器、.gitignore风格的忽略文件
+     * @param options    ListFilesOption数组，可取的值同listFiles
+     * @param extensions 扩展名
+     * @return 文件列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<File> listFiles(String path, PruneRules prune, ListFilesOption[] options, String... extensions) {
+        List<File> files = new ArrayList<>();
+
+        if (isDirectory(path)) {
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            criteria.prune = prune;
+            File dir = new File(path);
+            listFiles(dir, criteria, criteria.root(dir), files);
+        }
+
+        return files;
+    }
+
+    /**
+     * 列出指定目录路径下的文件，列出每个目录的内容之前回调visitor
+     */
+    static List<File> listFiles(String path, ListFilesOption[] options, String[] extensions, Consumer<Path> visitor) {
+        List<File> files = new ArrayList<>();
+
+        if (isDirectory(path)) {
+            File dir = new File(path);
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            criteria.visitor = visitor;
+            listFiles(dir, criteria, criteria.root(dir), files);
+        }
+
+        return files;
+    }
 
-            File pathFile = new File(path);
-            File[] listFiles = pathFile.listFiles(); // 可能会返回null
+    /**
+     * 列出目录下的文件，递归时所有层级共用同一个结果列表
+     */
+    private static void listFiles(File pathFile, ListFilesCriteria criteria, ListFilesCriteria.Scope scope, List<File> files) {
+        if (null != criteria.visitor) {
+            criteria.visitor.accept(pathFile.toPath());
+        }
+        File[] listFiles = pathFile.listFiles(); // 可能会返回null
 
+        if (null != listFiles) {
             // 排序
-            if (null != sortOption) {
-                sort(listFiles, sortOption);
+            if (null != criteria.sortOption) {
+                sort(listFiles, criteria.sortOption);
             }
 
-            if (null != listFiles) {
-                // 遍历目录下所有File
-                for (File file : listFiles) {
-
-                    // 如果是文件，且不忽略文件，且没隐藏（或隐藏但不忽略隐藏）
-                    if (file.isFile()
-                            && !ignoreFile
-                            && (!file.isHidden() || !ignoreHidden)) {
-
-                        // 如果不指定扩展过滤
-                        if (null == extensionOption) {
-                            files.add(file);
-                        }
-                        // 如果有扩展名，则进行过滤
-                        else if (null != extensions && extensions.length > 0) {
-                            String fileName = file.getName().toLowerCase();
-                            boolean hasFlg = false;
-
-                            for (String ext : extensions) {
-                                if (fileName.endsWith(ext.toLowerCase())) {
-                                    hasFlg = true;
-                                    break;
-                                }
-                            }
-
-                            // 包含
-                            if (extensionOption == ListFilesOption.INCLUDE_EXTENSION && hasFlg) {
-                                files.add(file);
-                            }
-
-                            // 排除
-                            if (extensionOption == ListFilesOption.EXCLUDE_EXTENSION && !hasFlg) {
-                                files.add(file);
-                            }
-                        }
-                    }
+            // 遍历目录下所有File
+            for (File file : listFiles) {
+                // 剪枝
+                if (criteria.pruned(scope, file)) {
+                    continue;
+                }
 
-                    // 如果是目录，且不忽略目录，且没隐藏（或隐藏但不忽略隐藏）
-                    if (file.isDirectory()
-                            && !ignoreDirectory
-                            && (!file.isHidden() || !ignoreHidden)) {
-                        if (null == extensionOption) {
-                            files.add(file);
-                        }
-                    }
+                if (criteria.accept(file)) {
+                    files.add(file);
+                }
 
-                    // 递归
-                    if (isRecursion && file.isDirectory()) {
-                        List<File> subFiles = listFiles(file.getPath(), options, extensions);
-                        files.addAll(subFiles);
-                    }
+                // 递归
+                if (criteria.descend(scope, file)) {
+                    listFiles(file, criteria, criteria.child(scope, file), files);
                 }
             }
         }
-
-        return files;
     }
 
     /**
@@ -714,130 +895,732 @@ public class FileUtil {
      * ${DATE}
      */
     public static List<File> listFiles(String path) {
-        return listFiles(path, null, null);
+        return listFiles(path, (ListFilesOption[]) null);
     }
 
-    // -- 拷贝文件或目录 --
-
     /**
-     * 拷贝文件或目录文件自身到指定目录，仅拷贝文件自身
+     * 列出指定目录路径下文件的属性，每个文件只读取一次BasicFileAttributes，
+     * 过滤、排序均使用已读取的属性，不再重复访问文件系统
+     * 返回的属性对象不包含读写执行权限与拥有者，需要时请使用getFileAttributes
+     *
+     * @param path       目录路径
+     * @param options    ListFilesOption数组，可取的值同listFiles
+     * @param extensions 扩展名
+     * @return 文件属性列表
+     * @author zhangh
+     * ${DATE}
      */
-    private static boolean copyFile(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, String rename) {
-        String toFileName = (null == rename || rename.trim().length() == 0) ? getFullName(path) : rename;
-        Path toPath = Paths.get(dirPath, toFileName);
+    public static List<FileAttributes> listFileAttributes(String path, ListFilesOption[] options, String... extensions) {
+        List<FileAttributes> files = new ArrayList<>();
 
-        // 如果SKIP_EXISTING且存在就跳过，否则都得拷贝
-        if (option == CopyFilesOption.SKIP_EXISTING && exists(toPath.toString())) {
-            return true;
+        if (isDirectory(path)) {
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            listFileAttributes(Paths.get(path), criteria, criteria.root(new File(path)), files::add);
         }
 
-        List<CopyOption> copyOptions = new ArrayList<CopyOption>();
-        copyOptions.add(LinkOption.NOFOLLOW_LINKS);
-        if (copyAttributes) {
-            copyOptions.add(StandardCopyOption.COPY_ATTRIBUTES);
+        return files;
+    }
+
+    /**
+     * 列出指定目录路径下文件的属性
+     *
+     * @param path    目录路径
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 文件属性列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<FileAttributes> listFileAttributes(String path, ListFilesOption... options) {
+        return listFileAttributes(path, options, (String[]) null);
+    }
+
+    /**
+     * 列出指定目录路径下文件的属性，按剪枝规则跳过不需要的目录
+     *
+     * @param path       目录路径
+     * @param prune      剪枝规则
+     * @param options    ListFilesOption数组，可取的值同listFiles
+     * @param extensions 扩展名
+     * @return 文件属性列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<FileAttributes> listFileAttributes(String path, PruneRules prune, ListFilesOption[] options, String... extensions) {
+        List<FileAttributes> files = new ArrayList<>();
+
+        if (isDirectory(path)) {
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            criteria.prune = prune;
+            listFileAttributes(Paths.get(path), criteria, criteria.root(new File(path)), files::add);
         }
-        if (option == CopyFilesOption.REPLACE_EXISTING) {
-            copyOptions.add(StandardCopyOption.REPLACE_EXISTING);
+
+        return files;
+    }
+
+    /**
+     * 列出指定目录路径下文件的属性，直接存入紧凑的列式容器，适用于数百万以上文件的清单
+     *
+     * @param path       目录路径
+     * @param store      存放结果的容器
+     * @param options    ListFilesOption数组，可取的值同listFiles
+     * @param extensions 扩展名
+     * @return 传入的容器
+     * @author zhangh
+     * ${DATE}
+     */
+    public static FileAttributesStore listFileAttributes(String path, FileAttributesStore store, ListFilesOption[] options, String... extensions) {
+        if (isDirectory(path)) {
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            listFileAttributes(Paths.get(path), criteria, criteria.root(new File(path)), store::add);
         }
 
-        try {
-            Files.copy(Paths.get(path), toPath, copyOptions.toArray(new CopyOption[0]));
-            return true;
-        } catch (UnsupportedOperationException e) {
-            logger.debug(getLinesString("拷贝文件失败，不支持的CopyOption。", e.getMessage()));
-        } catch (FileAlreadyExistsException e) {
-            logger.debug(getLinesString("拷贝文件失败，文件已存在。", toPath.toString(), e.getMessage()));
-        } catch (DirectoryNotEmptyException e) {
-            logger.debug(getLinesString("拷贝文件失败，目录不为空。", toPath.toString(), e.getMessage()));
-        } catch (IOException e) {
-            logger.debug(getLinesString("拷贝文件失败，I/O异常。", toPath.toString(), e.getMessage()));
-        } catch (SecurityException e) {
-            logger.debug(getLinesString("拷贝文件失败，安全异常。", toPath.toString(), e.getMessage()));
+        return store;
+    }
+
+    /**
+     * 列出指定目录路径下文件的属性，列出每个目录的内容之前回调visitor
+     */
+    static List<FileAttributes> listFileAttributes(String path, ListFilesOption[] options, String[] extensions, Consumer<Path> visitor) {
+        List<FileAttributes> files = new ArrayList<>();
+
+        if (isDirectory(path)) {
+            ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+            criteria.visitor = visitor;
+            listFileAttributes(Paths.get(path), criteria, criteria.root(new File(path)), files::add);
         }
-        return false;
+
+        return files;
     }
 
     /**
-     * 拷贝文件或目录文件到指定目录，如果是目录，则递归拷贝其子文件
+     * 基于DirectoryStream列出目录下文件的属性，递归时所有层级共用同一个结果接收者
      */
-    private static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, List<FileAttributes> copied) {
-        // 拷贝结果
-        boolean r = false;
+    private static void listFileAttributes(Path dir, ListFilesCriteria criteria, ListFilesCriteria.Scope scope, Consumer<FileAttributes> files) {
+        if (null != criteria.visitor) {
+            criteria.visitor.accept(dir);
+        }
+        List<FileAttributes> entries = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                try {
+                    // 与listFiles一致，跟随符号链接
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    entries.add(toFileAttributes(entry.toString(), entry.toFile(), attributes));
+                } catch (IOException e) {
+                    logger.debug(getLinesString("获取文件属性失败，I/O异常。", entry.toString(), e.getMessage()));
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            logger.debug(getLinesString("遍历目录失败，I/O异常。", dir.toString(), e.getMessage()));
+        } catch (SecurityException e) {
+            logger.debug(getLinesString("遍历目录失败，安全异常。", dir.toString(), e.getMessage()));
+        }
 
-        if (exists(path)) {
-            // 目标文件或目录的路径
-            String toPath = Paths.get(dirPath, getFullName(path)).toString();
+        // 排序
+        if (null != criteria.sortOption) {
+            sort(entries, criteria.sortOption);
+        }
 
-            // 先拷贝文件或目录文件
-            r = copyFile(path, dirPath, copyAttributes, option, null);
-            if (r) {
-                // 记录已创建的文件或目录
-                FileAttributes fileAttributes = getFileAttributes(toPath);
-                copied.add(fileAttributes);
+        for (FileAttributes entry : entries) {
+            // 剪枝
+            if (criteria.pruned(scope, entry)) {
+                continue;
             }
 
-            // 再递归目录下的文件
-            if (isDirectory(path)) {
-                for (File file : listFiles(path)) {
-                    r = copy(file.getPath(), toPath, copyAttributes, option, copied);
-                    if (!r) {
-                        break;
-                    }
-                }
+            if (criteria.accept(entry)) {
+                files.accept(entry);
+            }
+
+            // 递归
+            if (criteria.descend(scope, entry)) {
+                File subDir = new File(entry.getPath());
+                listFileAttributes(subDir.toPath(), criteria, criteria.child(scope, subDir), files);
             }
         }
-        return r;
     }
 
     /**
-     * 拷贝文件或目录文件到指定目录
+     * 列出指定目录路径下按日期排在最前的limit个文件，如最近修改的100个文件
+     * 排序针对全部结果（递归时跨目录），使用容量为limit的堆选取，不对全部文件排序
      *
-     * @param path           文件路径或目录路径
-     * @param dirPath        目录路径
-     * @param copyAttributes 是否拷贝属性
-     * @param option         REPLACE_EXISTING, SKIP_EXISTING
-     * @return 是否拷贝成功
+     * @param path       目录路径
+     * @param limit      最多返回的文件数
+     * @param options    ListFilesOption数组，可取的值同listFiles，必须包含一个SORT_*选项
+     * @param extensions 扩展名
+     * @return 文件列表
      * @author zhangh
      * ${DATE}
      */
-    public static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option) {
-        // 先创建目录路径
-        createDirectories(dirPath);
-
-        List<FileAttributes> copied = new ArrayList<>();
-        boolean r = copy(path, dirPath, copyAttributes, option, copied);
+    public static List<File> listFiles(String path, int limit, ListFilesOption[] options, String... extensions) {
+        ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+        ListFilesOption sortOption = criteria.sortOption;
+        if (null == sortOption) {
+            logger.debug(getLinesString("列出文件失败，未指定排序选项。", path));
+            return new ArrayList<>();
+        }
 
-        // 如果拷贝出错，删除已拷贝的文件或目录
-        if (!r) {
-            for (int i = copied.size() - 1; i >= 0; i--) {
-                delete(copied.get(i).getPath(), false);
-            }
+        // 遍历时不再逐层排序，由堆统一选取
+        criteria.sortOption = null;
+        try (FileIterator iterator = new FileIterator(new File(path), criteria)) {
+            return FileSorter.top(iterator, sortOption, limit);
         }
-        return r;
     }
 
     /**
-     * 拷贝文件或目录文件到指定目录，如果存在，则覆盖
+     * 以流的形式惰性列出指定目录路径下的文件，边遍历边返回，顺序与listFiles一致
+     * 流持有打开的目录句柄，使用完毕需关闭，建议使用try-with-resources
      *
-     * @param path    文件路径或目录路径
-     * @param dirPath 目录路径
-     * @return 是否拷贝成功
+     * @param path       目录路径
+     * @param options    ListFilesOption数组，可取的值同listFiles
+     * @param extensions 扩展名
+     * @return 文件流
      * @author zhangh
      * ${DATE}
      */
-    public static boolean copy(String path, String dirPath) {
-        return copy(path, dirPath, true, CopyFilesOption.REPLACE_EXISTING);
+    public static Stream<File> streamFiles(String path, ListFilesOption[] options, String... extensions) {
+        return streamFiles(new File(path), new ListFilesCriteria(options, extensions));
     }
 
-    // -- 删除文件或目录 --
-
     /**
-     * 删除文件或目录文件
-     */
-    private static boolean deleteFile(String path) {
-        try {
+     * 以流的形式惰性列出指定目录路径下的文件
+     *
+     * @param path    目录路径
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 文件流
+     * @author zhangh
+     * ${DATE}
+     */
+    public static Stream<File> streamFiles(String path, ListFilesOption... options) {
+        return streamFiles(path, options, (String[]) null);
+    }
+
+    /**
+     * 以流的形式惰性列出指定目录路径下匹配过滤器的文件
+     *
+     * @param path    目录路径
+     * @param matcher 过滤器
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 文件流
+     * @author zhangh
+     * ${DATE}
+     */
+    public static Stream<File> streamFilesMatching(String path, FileMatcher matcher, ListFilesOption... options) {
+        ListFilesCriteria criteria = new ListFilesCriteria(options);
+        criteria.matcher = matcher;
+        return streamFiles(new File(path), criteria);
+    }
+
+    /**
+     * 以流的形式惰性列出指定目录路径下的文件，按剪枝规则跳过不需要的目录
+     *
+     * @param path       目录路径
+     * @param prune      剪枝规则
+     * @param options    ListFilesOption数组，可取的值同listFiles
+     * @param extensions 扩展名
+     * @return 文件流
+     * @author zhangh
+     * ${DATE}
+     */
+    public static Stream<File> streamFiles(String path, PruneRules prune, ListFilesOption[] options, String... extensions) {
+        ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+        criteria.prune = prune;
+        return streamFiles(new File(path), criteria);
+    }
+
+    private static Stream<File> streamFiles(File dir, ListFilesCriteria criteria) {
+        FileIterator iterator = new FileIterator(dir, criteria);
+        Spliterator<File> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * 查找指定目录路径下匹配的文件，找到limit个或取消后立即停止遍历
+     *
+     * @param path    目录路径
+     * @param limit   最多查找的文件数，小于1时不限制
+     * @param token   取消标记，可为null
+     * @param matcher 过滤器，可为null
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 文件列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<File> findFiles(String path, int limit, CancellationToken token, FileMatcher matcher, ListFilesOption... options) {
+        List<File> files = new ArrayList<>();
+
+        ListFilesCriteria criteria = new ListFilesCriteria(options);
+        criteria.matcher = matcher;
+        try (FileIterator iterator = new FileIterator(new File(path), criteria, token)) {
+            while ((limit < 1 || files.size() < limit) && iterator.hasNext()) {
+                files.add(iterator.next());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 查找指定目录路径下第一个匹配的文件，找到后立即停止遍历
+     * 如判断目录下是否存在*.lock文件：findFirst(path, FileMatcher.glob("*.lock"), RECURSION) != null
+     *
+     * @param path    目录路径
+     * @param matcher 过滤器，可为null
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 第一个匹配的文件，没有则返回null
+     * @author zhangh
+     * ${DATE}
+     */
+    public static File findFirst(String path, FileMatcher matcher, ListFilesOption... options) {
+        List<File> files = findFiles(path, 1, null, matcher, options);
+        return files.isEmpty() ? null : files.get(0);
+    }
+
+    /**
+     * 分页列出指定目录下的文件（不递归），每次调用只读取一页，内存占用只与页大小有关
+     * 适用于数百万文件的扁平目录；两次调用之间保留目录流，凭上一页的游标继续时直接接着读取，
+     * 游标来自其他进程或目录流已空闲超过60秒时，需要从头读到游标处
+     * 应读到最后一页（游标为null）；中途不再继续时调用closeFilesPage关闭保留的目录流
+     *
+     * @param path     目录路径
+     * @param pageSize 页大小
+     * @param cursor   上一页返回的游标，第一页为null
+     * @param matcher  过滤器，可为null
+     * @param options  ListFilesOption数组，仅IGNORE_*过滤选项生效
+     * @return 一页文件，最后一页的游标为null
+     * @author zhangh
+     * ${DATE}
+     */
+    public static FilePage listFilesPage(String path, int pageSize, String cursor, FileMatcher matcher, ListFilesOption... options) {
+        return DirectoryPager.page(path, pageSize, cursor, matcher, options);
+    }
+
+    /**
+     * 关闭listFilesPage在该游标处保留的目录流；游标不再继续读取（没有读到最后一页）时应调用，
+     * 否则目录流要到空闲60秒后才关闭
+     *
+     * @param path   目录路径
+     * @param cursor listFilesPage返回的游标
+     * @return 是否有保留的目录流被关闭
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean closeFilesPage(String path, String cursor) {
+        return DirectoryPager.release(path, cursor);
+    }
+
+    /**
+     * 并行列出指定目录路径下的文件，每个子目录由ForkJoinPool中的一个任务处理
+     *
+     * @param path        目录路径
+     * @param parallelism 并行度，小于1时取CPU核数
+     * @param keepOrder   是否保持与listFiles一致的顺序，为false时不保证顺序，吞吐量更高
+     * @param options     ListFilesOption数组，可取的值同listFiles
+     * @param extensions  扩展名
+     * @return 文件列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<File> listFilesParallel(String path, int parallelism, boolean keepOrder, ListFilesOption[] options, String... extensions) {
+        if (!isDirectory(path)) {
+            return new ArrayList<>();
+        }
+
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+
+        ListFilesCriteria criteria = new ListFilesCriteria(options, extensions);
+        Collection<File> shared = keepOrder ? null : new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            File dir = new File(path);
+            List<File> files = pool.invoke(new ListFilesTask(dir, criteria, criteria.root(dir), keepOrder, shared));
+            return keepOrder ? files : new ArrayList<>(shared);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 并行列出指定目录路径下的文件，并行度为CPU核数，保持与listFiles一致的顺序
+     *
+     * @param path    目录路径
+     * @param options ListFilesOption数组，可取的值同listFiles
+     * @return 文件列表
+     * @author zhangh
+     * ${DATE}
+     */
+    public static List<File> listFilesParallel(String path, ListFilesOption... options) {
+        return listFilesParallel(path, 0, true, options, (String[]) null);
+    }
+
+    // -- 拷贝文件或目录 --
+
+    // 大于等于该大小的文件使用FileChannel.transferTo拷贝，小于0时不使用
+    private static volatile long transferThreshold = -1L;
+    private static volatile long transferChunkSize = 64L * 1024 * 1024;
+
+    /**
+     * 设置大文件拷贝方式，大于等于threshold的普通文件使用FileChannel.transferTo分块拷贝，
+     * 由内核直接传输数据（sendfile/copy_file_range），对copy、move等所有拷贝操作生效
+     *
+     * @param threshold 文件大小阈值（字节），小于0时关闭
+     * @param chunkSize 每次传输的字节数
+     * @author zhangh
+     * ${DATE}
+     */
+    public static void setLargeFileTransfer(long threshold, long chunkSize) {
+        transferThreshold = threshold;
+        if (chunkSize > 0) {
+            transferChunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * 使用FileChannel.transferTo拷贝文件到指定目录，适用于GB级的大文件
+     *
+     * @param path           文件路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性（时间与posix权限）
+     * @param option         REPLACE_EXISTING, SKIP_EXISTING
+     * @param chunkSize      每次传输的字节数
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copyLargeFile(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, long chunkSize) {
+        if (!isFile(path)) {
+            logger.debug(getLinesString("拷贝文件失败，文件不存在或不是文件。", path));
+            return false;
+        }
+        createDirectories(dirPath);
+        return copyFile(path, dirPath, copyAttributes, option, null, chunkSize > 0 ? chunkSize : transferChunkSize);
+    }
+
+    /**
+     * 可断点续传地拷贝文件到指定目录，适用于数十GB的大文件
+     * 数据先写入“文件名.part”，每完成一块记录一次检查点（“文件名.part.checkpoint”），
+     * 拷贝中断（返回false）时保留二者，再次调用会从最后一个已刷盘的块继续；源文件变化时从头拷贝
+     * 完成后原子重命名为目标文件，目标已存在时覆盖
+     *
+     * @param path           文件路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性（时间与posix权限）
+     * @param chunkSize      每块的字节数，小于等于0时使用setLargeFileTransfer设置的值（默认64MB）
+     * @return 是否拷贝完成
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copyResumable(String path, String dirPath, boolean copyAttributes, long chunkSize) {
+        if (!isFile(path)) {
+            logger.debug(getLinesString("拷贝文件失败，文件不存在或不是文件。", path));
+            return false;
+        }
+        createDirectories(dirPath);
+        boolean r = ResumableCopier.copy(path, dirPath, copyAttributes, chunkSize > 0 ? chunkSize : transferChunkSize);
+        metadataChanged(Paths.get(dirPath, getFullName(path)).toString());
+        return r;
+    }
+
+    /**
+     * 拷贝文件或目录文件自身到指定目录，仅拷贝文件自身
+     */
+    static boolean copyFile(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, String rename) {
+        long threshold = transferThreshold;
+        long chunkSize = 0L;
+        if (threshold >= 0) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isRegularFile() && attributes.size() >= threshold) {
+                    chunkSize = transferChunkSize;
+                }
+            } catch (IOException | SecurityException e) {
+                logger.debug(getLinesString("获取文件属性失败。", path, e.getMessage()));
+            }
+        }
+        return copyFile(path, dirPath, copyAttributes, option, rename, chunkSize);
+    }
+
+    /**
+     * 拷贝文件或目录文件自身到指定目录，chunkSize大于0时使用FileChannel.transferTo拷贝
+     */
+    private static boolean copyFile(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, String rename, long chunkSize) {
+        String toFileName = (null == rename || rename.trim().length() == 0) ? getFullName(path) : rename;
+        Path toPath = Paths.get(dirPath, toFileName);
+
+        // 如果SKIP_EXISTING且存在就跳过，否则都得拷贝
+        if (option == CopyFilesOption.SKIP_EXISTING && exists(toPath.toString())) {
+            return true;
+        }
+
+        // 如果SYNC且大小、最后修改时间相同（目录则已存在）就跳过，否则覆盖
+        if (option == CopyFilesOption.SYNC && FileSyncer.isSame(Paths.get(path), toPath)) {
+            return true;
+        }
+        // 目录已存在时沿用，继续拷贝其子文件，不能覆盖不为空的目录
+        if (Files.isDirectory(Paths.get(path), LinkOption.NOFOLLOW_LINKS) && Files.isDirectory(toPath, LinkOption.NOFOLLOW_LINKS)) {
+            return true;
+        }
+        boolean replace = option == CopyFilesOption.REPLACE_EXISTING || option == CopyFilesOption.SYNC;
+
+        List<CopyOption> copyOptions = new ArrayList<CopyOption>();
+        copyOptions.add(LinkOption.NOFOLLOW_LINKS);
+        if (copyAttributes) {
+            copyOptions.add(StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        if (replace) {
+            copyOptions.add(StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try {
+            if (chunkSize > 0) {
+                ChannelTransfer.transfer(Paths.get(path), toPath, copyAttributes, replace, chunkSize);
+            } else {
+                Files.copy(Paths.get(path), toPath, copyOptions.toArray(new CopyOption[0]));
+            }
+            metadataChanged(toPath.toString());
+            return true;
+        } catch (UnsupportedOperationException e) {
+            logger.debug(getLinesString("拷贝文件失败，不支持的CopyOption。", e.getMessage()));
+        } catch (FileAlreadyExistsException e) {
+            logger.debug(getLinesString("拷贝文件失败，文件已存在。", toPath.toString(), e.getMessage()));
+        } catch (DirectoryNotEmptyException e) {
+            logger.debug(getLinesString("拷贝文件失败，目录不为空。", toPath.toString(), e.getMessage()));
+        } catch (IOException e) {
+            logger.debug(getLinesString("拷贝文件失败，I/O异常。", toPath.toString(), e.getMessage()));
+        } catch (SecurityException e) {
+            logger.debug(getLinesString("拷贝文件失败，安全异常。", toPath.toString(), e.getMessage()));
+        }
+        return false;
+    }
+
+    /**
+     * 拷贝文件或目录文件到指定目录，如果是目录，则递归拷贝其子文件
+     */
+    private static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, CopyJournal journal, CancellationToken token) {
+        // 拷贝结果
+        boolean r = false;
+
+        // 每个文件拷贝前检查是否已取消
+        if (null != token && token.isCancelled()) {
+            return false;
+        }
+
+        if (exists(path)) {
+            // 目标文件或目录的路径
+            String toPath = Paths.get(dirPath, getFullName(path)).toString();
+
+            // 先拷贝文件或目录文件，创建之前记录，只记录新创建的文件或目录，已存在的回滚时不能删除
+            r = (isTargetExisting(toPath) || journal.record(toPath))
+                    && copyFile(path, dirPath, copyAttributes, option, null);
+
+            // 再递归目录下的文件
+            if (r && isDirectory(path)) {
+                for (File file : listFiles(path)) {
+                    r = copy(file.getPath(), toPath, copyAttributes, option, journal, token);
+                    if (!r) {
+                        break;
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * 目标已存在：被跳过、被覆盖的文件或沿用的目录都不是本次拷贝创建的，不记录到回滚日志
+     */
+    static boolean isTargetExisting(String toPath) {
+        return Files.exists(Paths.get(toPath), LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * 拷贝文件或目录文件到指定目录
+     *
+     * @param path           文件路径或目录路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性
+     * @param option         REPLACE_EXISTING, SKIP_EXISTING, SYNC
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option) {
+        return copy(path, dirPath, copyAttributes, option, (String) null);
+    }
+
+    /**
+     * 拷贝文件或目录文件到指定目录，新创建的文件或目录在创建之前逐行记录在日志文件中，拷贝结束（无论成败）后删除日志文件
+     * 如果拷贝出错，删除已拷贝的文件或目录；如果进程在拷贝过程中崩溃，日志文件会保留，可用rollbackCopy回滚
+     *
+     * @param path           文件路径或目录路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性
+     * @param option         REPLACE_EXISTING, SKIP_EXISTING, SYNC
+     * @param journalPath    日志文件路径，为null时只在内存中记录
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, String journalPath) {
+        return copy(path, dirPath, copyAttributes, option, journalPath, null);
+    }
+
+    /**
+     * 可取消的拷贝，每个文件拷贝前检查取消标记，取消后删除已拷贝的文件或目录
+     */
+    static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, String journalPath, CancellationToken token) {
+        // 先创建目录路径
+        createDirectories(dirPath);
+
+        try (CopyJournal journal = new CopyJournal(journalPath)) {
+            boolean r = copy(path, dirPath, copyAttributes, option, journal, token);
+
+            // 如果拷贝出错，删除已拷贝的文件或目录
+            if (!r) {
+                journal.rollback();
+            }
+            return r;
+        }
+    }
+
+    /**
+     * 拷贝文件或目录文件到指定目录，拷贝过程中回调进度，可限制整个拷贝的带宽
+     * 如果拷贝出错，删除已拷贝的文件或目录
+     *
+     * @param path           文件路径或目录路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性
+     * @param option         REPLACE_EXISTING, SKIP_EXISTING, SYNC
+     * @param listener       进度监听器，可为null
+     * @param bytesPerSecond 每秒最多拷贝的字节数，小于等于0时不限制
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option,
+                               CopyProgressListener listener, long bytesPerSecond) {
+        return copy(path, dirPath, copyAttributes, option, listener, bytesPerSecond, null);
+    }
+
+    /**
+     * 可取消的拷贝，取消后删除已拷贝的文件或目录
+     */
+    static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option,
+                        CopyProgressListener listener, long bytesPerSecond, CancellationToken token) {
+        // 先创建目录路径
+        createDirectories(dirPath);
+
+        try (CopyJournal journal = new CopyJournal(null)) {
+            boolean r = ProgressCopier.copy(path, dirPath, copyAttributes, option, listener, bytesPerSecond, journal, token);
+
+            // 如果拷贝出错，删除已拷贝的文件或目录
+            if (!r) {
+                journal.rollback();
+            }
+            return r;
+        }
+    }
+
+    /**
+     * 根据崩溃后遗留的拷贝日志文件，删除已拷贝的文件或目录，完成后删除日志文件
+     *
+     * @param journalPath 日志文件路径
+     * @return 是否回滚成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean rollbackCopy(String journalPath) {
+        if (!isFile(journalPath)) {
+            logger.debug(getLinesString("回滚拷贝失败，日志文件不存在。", journalPath));
+            return false;
+        }
+        return CopyJournal.rollback(journalPath);
+    }
+
+    /**
+     * 并行拷贝文件或目录文件到指定目录，先创建所有目录，再由parallelism个线程并发拷贝文件
+     * 任一文件拷贝失败时，删除已拷贝的文件或目录
+     *
+     * @param path           文件路径或目录路径
+     * @param dirPath        目录路径
+     * @param copyAttributes 是否拷贝属性
+     * @param option         REPLACE_EXISTING, SKIP_EXISTING
+     * @param parallelism    并发拷贝的线程数，小于2时与copy(path, dirPath, copyAttributes, option)相同
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, int parallelism) {
+        if (parallelism < 2) {
+            return copy(path, dirPath, copyAttributes, option);
+        }
+
+        // 先创建目录路径
+        createDirectories(dirPath);
+
+        try (CopyJournal journal = new CopyJournal(null)) {
+            boolean r = ParallelCopier.copy(path, dirPath, copyAttributes, option, parallelism, journal);
+
+            // 如果拷贝出错，删除已拷贝的文件或目录
+            if (!r) {
+                journal.rollback();
+            }
+            return r;
+        }
+    }
+
+    /**
+     * 拷贝文件或目录文件到指定目录，如果存在，则覆盖
+     *
+     * @param path    文件路径或目录路径
+     * @param dirPath 目录路径
+     * @return 是否拷贝成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean copy(String path, String dirPath) {
+        return copy(path, dirPath, true, CopyFilesOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 增量同步文件或目录到指定目录，只拷贝大小或最后修改时间不同的文件，目标端的文件保留源文件的属性
+     *
+     * @param path           文件路径或目录路径
+     * @param dirPath        目录路径
+     * @param compareContent 是否比较文件内容，为true时大小相同的文件逐块比较内容，不再比较最后修改时间
+     * @param deleteExtras   是否删除目标端存在而源端不存在的文件或目录
+     * @return 同步结果
+     * @author zhangh
+     * ${DATE}
+     */
+    public static SyncResult sync(String path, String dirPath, boolean compareContent, boolean deleteExtras) {
+        return FileSyncer.sync(path, dirPath, compareContent, deleteExtras);
+    }
+
+    /**
+     * 增量同步文件或目录到指定目录，比较大小与最后修改时间，不删除目标端多余的文件
+     *
+     * @param path    文件路径或目录路径
+     * @param dirPath 目录路径
+     * @return 同步结果
+     * @author zhangh
+     * ${DATE}
+     */
+    public static SyncResult sync(String path, String dirPath) {
+        return sync(path, dirPath, false, false);
+    }
+
+    // -- 删除文件或目录 --
+
+    /**
+     * 删除文件或目录文件
+     */
+    private static boolean deleteFile(String path) {
+        try {
             // 删除文件或目录文件
             Files.delete(Paths.get(path));
+            metadataChanged(path);
             return true;
         } catch (NoSuchFileException e) {
             logger.debug(getLinesString("删除文件失败，文件不存在。", path, e.getMessage()));
@@ -853,15 +1636,20 @@ public class FileUtil {
 
     /**
      * 删除指定的文件或目录，如果是目录的话，递归删除其下所有文件
+     * 可取消，每个文件删除前检查取消标记，取消时已删除的文件不会恢复
      */
-    private static boolean delete(String path, List<FileAttributes> deleted) {
+    static boolean delete(String path, CancellationToken token) {
         boolean r = false;
 
+        if (null != token && token.isCancelled()) {
+            return false;
+        }
+
         if (exists(path)) {
             // 如果是目录的话，先递归删除子文件
             if (isDirectory(path)) {
                 for (File file : listFiles(path)) {
-                    r = delete(file.getPath(), deleted);
+                    r = delete(file.getPath(), token);
                     if (!r) {
                         // 直接返回false，后面删除文件或目录的代码不再执行了
                         return false;
@@ -871,10 +1659,6 @@ public class FileUtil {
 
             // 删除文件或目录文件
             r = deleteFile(path);
-            if (r) {
-                FileAttributes fAttr = getFileAttributes(path);
-                deleted.add(fAttr);
-            }
 
         }
         return r;
@@ -884,45 +1668,35 @@ public class FileUtil {
      * 删除指定目录路径下的文件
      *
      * @param path      目录路径
-     * @param safeModel 安全模式下，会先备份，再删除，如果其中某个文件删除失败，则还原已删除的文件
+     * @param safeModel 安全模式下，先原子移动到同一目录下的回收目录（删除要么全部成功，要么不变），再由后台线程清除回收目录；
+     *                  移动失败时不删除任何文件，返回false
      * @return 是否删除成功
      * @author zhangh
      * ${DATE}
      */
     public static boolean delete(String path, boolean safeModel) {
-        boolean r = false;
-
-        // 安全模式下，先备份
-        String backupPath = "";
-        if (safeModel) {
-            backupPath = createBackupDirectory(path);
-            copy(path, backupPath);
+        if (!safeModel) {
+            return delete(path, (CancellationToken) null);
+        }
+        if (!exists(path)) {
+            logger.debug(getLinesString("删除文件失败，文件不存在。", path));
+            return false;
         }
 
-        // 删除
-        List<FileAttributes> deleted = new ArrayList<>();
-        r = delete(path, deleted);
-
-        //安全模式下，会产生备份，删除无论成败，都需要把备份删掉
-        if (safeModel) {
-            // 如果删除失败，先还原
-            if (!r) {
-                for (int i = deleted.size() - 1; i >= 0; i--) {
-                    FileAttributes fileAttributes = deleted.get(i);
-                    if (fileAttributes.isFile) {
-                        // 获取已删除的文件的备份文件的路径
-                        String path2 = Paths.get(backupPath, fileAttributes.getPath().substring(getParentPath(backupPath).length())).toString();
-                        copy(path2, fileAttributes.getParentPath());
-                    }
-                    if (fileAttributes.isDirectory) {
-                        createDirectories(fileAttributes.getPath());
-                    }
-                }
-            }
-            // 还原完成后，删除备份
-            delete(backupPath, false);
+        String trashPath = createBackupDirectory(path);
+        if (null == trashPath) {
+            return false;
+        }
+        try {
+            Trash.move(Paths.get(path), Paths.get(trashPath));
+            metadataChanged(path);
+            Trash.purge(trashPath);
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(getLinesString("删除文件失败，移动到回收目录失败。", path, e.getMessage()));
+            deleteFile(trashPath);
+            return false;
         }
-        return r;
     }
 
     /**
@@ -937,6 +1711,39 @@ public class FileUtil {
         return delete(path, false);
     }
 
+    /**
+     * 并行删除文件或目录，目录下的文件由parallelism个线程并发删除，目录在其下所有文件删除后自底向上删除
+     * 适用于包含大量文件的目录树；删除失败时已删除的文件不会恢复
+     *
+     * @param path        文件路径或目录路径
+     * @param parallelism 并行度，小于1时取CPU核数
+     * @return 是否删除成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean delete(String path, int parallelism) {
+        File file = new File(path);
+        // 文件、符号链接或空目录直接删除
+        if (file.delete()) {
+            metadataChanged(path);
+            return true;
+        }
+        if (!Files.isDirectory(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+            return deleteFile(path);
+        }
+
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new DeleteTask(file, new AtomicBoolean(false)));
+        } finally {
+            pool.shutdown();
+            metadataChanged(path);
+        }
+    }
+
     /**
      * 创建备份名称
      */
@@ -948,7 +1755,8 @@ public class FileUtil {
      * 删除指定文件列表的文件，不能是目录文件
      *
      * @param files     文件列表
-     * @param safeModel 安全模式，安全模式下，删除前先备份文件，如果删除的其中一个文件出错，则还原
+     * @param safeModel 安全模式，安全模式下，先把文件原子移动到所在目录下的回收目录，
+     *                  如果其中一个文件出错，则全部移回，否则由后台线程清除回收目录
      * @return 是否删除成功
      * @author zhangh
      * ${DATE}
@@ -963,38 +1771,57 @@ public class FileUtil {
         }
 
         boolean r = false;
-        List<FileAttributes> handled = new ArrayList<>();
+        if (!safeModel) {
+            for (File file : files) {
+                r = deleteFile(file.getPath());
+                if (!r) {
+                    break;
+                }
+            }
+            return r;
+        }
 
+        // 安全模式下，按所在目录原子移动到回收目录，其中一个出错则全部移回
+        Map<String, String> trashPaths = new LinkedHashMap<>();
+        List<Path[]> moved = new ArrayList<>();
         for (File file : files) {
-
-            // 如果是安全模式，先备份
-            if (safeModel) {
-                FileAttributes fileAttributes = getFileAttributes(file.getPath());
-                String path = file.getPath();
-                String parentPath = file.getParent();
-                String backupName = createBackupName();
-                copyFile(path, parentPath, true, CopyFilesOption.REPLACE_EXISTING, backupName);
-                fileAttributes.setBackupPath(Paths.get(parentPath, backupName).toString());
-                handled.add(fileAttributes);
+            String parentPath = file.getAbsoluteFile().getParent();
+            String trashPath = trashPaths.get(parentPath);
+            if (null == trashPath) {
+                trashPath = createBackupDirectory(file.getAbsolutePath());
+                if (null == trashPath) {
+                    r = false;
+                    break;
+                }
+                trashPaths.put(parentPath, trashPath);
             }
 
-            r = deleteFile(file.getPath());
-            if (!r) {
+            try {
+                // 回收目录与文件在同一目录下，原子移动只是一次rename
+                moved.add(new Path[]{file.toPath(), Trash.move(file.toPath(), Paths.get(trashPath))});
+                metadataChanged(file.getPath());
+                r = true;
+            } catch (IOException | SecurityException e) {
+                logger.debug(getLinesString("删除文件失败，移动到回收目录失败。", file.getPath(), e.getMessage()));
+                r = false;
                 break;
             }
         }
 
-        // 如果是安全模式，就会产生备份，无论删除成功与否，都需要处理备份的文件
-        if (safeModel) {
-            for (int i = handled.size() - 1; i >= 0; i--) {
-                FileAttributes fAttr = handled.get(i);
-                if (!r) {
-                    copyFile(fAttr.getBackupPath(), fAttr.getParentPath(), true, CopyFilesOption.SKIP_EXISTING, fAttr.getFullName());
-                }
-                deleteFile(fAttr.getBackupPath());
+        if (r) {
+            for (String trashPath : trashPaths.values()) {
+                Trash.purge(trashPath);
+            }
+        } else {
+            for (int i = moved.size() - 1; i >= 0; i--) {
+                Trash.restore(moved.get(i)[1], moved.get(i)[0]);
+                metadataChanged(moved.get(i)[0].toString());
+            }
+            // 还原失败的文件仍保留在回收目录中，此时目录不为空，不会被删除
+            for (String trashPath : trashPaths.values()) {
+                deleteFile(trashPath);
             }
         }
-
         return r;
     }
 
@@ -1014,6 +1841,7 @@ public class FileUtil {
      * 创建备份目录
      */
     private static String createBackupDirectory(String path) {
+        Trash.sweep(Paths.get(getParentPath(path)));
         String backupName = createBackupName();
         String backupPath = Paths.get(getParentPath(path), backupName).toString();
         if (createDirectories(backupPath)) {
@@ -1042,6 +1870,10 @@ public class FileUtil {
             if (!exists(toPath)) {
                 File file = new File(path);
                 r = file.renameTo(new File(toPath));
+                if (r) {
+                    metadataChanged(path);
+                    metadataChanged(toPath);
+                }
             }
         }
         return r;
@@ -1051,6 +1883,7 @@ public class FileUtil {
 
     /**
      * 移动指定路径的文件或目录到指定路径
+     * 同一文件系统内为一次原子重命名；跨文件系统时逐个文件拷贝后立即删除源文件，失败时已移动的文件保留在目标路径
      *
      * @param path    文件路径
      * @param dirPath 目标路径
@@ -1059,24 +1892,99 @@ public class FileUtil {
      * ${DATE}
      */
     public static boolean move(String path, String dirPath) {
-        boolean r = false;
+        return move(path, dirPath, null, 0L);
+    }
 
-        if (exists(path)) {
-            // 目标文件或目录的路径
-            String toPath = Paths.get(dirPath, getFullName(path)).toString();
-            if (notExists(toPath)) {
-                if (copy(path, dirPath)) {
-                    if (delete(path)) {
-                        r = true;
-                    } else {
-                        delete(toPath);
-                    }
-                }
-            }
+    /**
+     * 移动指定路径的文件或目录到指定路径，跨文件系统拷贝时回调进度，可限制带宽
+     * 同一文件系统内为一次原子重命名，不回调进度
+     *
+     * @param path           文件路径
+     * @param dirPath        目标路径
+     * @param listener       进度监听器，可为null
+     * @param bytesPerSecond 每秒最多拷贝的字节数，小于等于0时不限制
+     * @return 是否移动成功
+     * @author zhangh
+     * ${DATE}
+     */
+    public static boolean move(String path, String dirPath, CopyProgressListener listener, long bytesPerSecond) {
+        return move(path, dirPath, listener, bytesPerSecond, null);
+    }
+
+    /**
+     * 可取消的移动，跨文件系统时取消前已移动的文件保留在目标路径
+     */
+    static boolean move(String path, String dirPath, CopyProgressListener listener, long bytesPerSecond, CancellationToken token) {
+        if (!exists(path)) {
+            return false;
+        }
+        // 目标文件或目录的路径
+        String toPath = Paths.get(dirPath, getFullName(path)).toString();
+        if (!notExists(toPath)) {
+            logger.debug(getLinesString("移动文件失败，目标已存在。", toPath));
+            return false;
+        }
+        Path from = Paths.get(path).toAbsolutePath().normalize();
+        if (Paths.get(toPath).toAbsolutePath().normalize().startsWith(from)) {
+            logger.debug(getLinesString("移动文件失败，不能移动到自身之下。", path, toPath));
+            return false;
+        }
+
+        // 目标目录不存在时创建，移动失败时删除本次创建的目录
+        Path created = firstMissing(Paths.get(dirPath).toAbsolutePath().normalize());
+        if (!createDirectories(dirPath)) {
+            return false;
+        }
+
+        try {
+            Files.move(Paths.get(path), Paths.get(toPath), StandardCopyOption.ATOMIC_MOVE);
+            metadataChanged(path);
+            metadataChanged(toPath);
+            return true;
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.debug(getLinesString("不能原子移动（跨文件系统），逐个文件拷贝后删除。", path, e.getMessage()));
+        } catch (IOException | SecurityException e) {
+            logger.debug(getLinesString("移动文件失败。", path, e.getMessage()));
+            deleteCreated(Paths.get(dirPath).toAbsolutePath().normalize(), created);
+            return false;
+        }
+
+        boolean r;
+        try (CopyJournal journal = new CopyJournal(null)) {
+            r = ProgressCopier.move(path, dirPath, listener, bytesPerSecond, journal, token);
+        }
+        if (!r) {
+            // 已移动的文件保留在目标端，只删除仍为空的目录
+            deleteCreated(Paths.get(dirPath).toAbsolutePath().normalize(), created);
         }
         return r;
     }
 
+    /**
+     * 路径中第一个不存在的目录，都存在时返回null
+     */
+    private static Path firstMissing(Path dir) {
+        Path missing = null;
+        for (Path p = dir; null != p && Files.notExists(p, LinkOption.NOFOLLOW_LINKS); p = p.getParent()) {
+            missing = p;
+        }
+        return missing;
+    }
+
+    /**
+     * 自底向上删除从dir到created的空目录，created为null时不删除
+     */
+    private static void deleteCreated(Path dir, Path created) {
+        if (null == created) {
+            return;
+        }
+        for (Path p = dir; null != p && p.startsWith(created); p = p.getParent()) {
+            if (!deleteFile(p.toString())) {
+                break;
+            }
+        }
+    }
+
     // -- 文件排序 --
 
     /**
@@ -1086,54 +1994,39 @@ public class FileUtil {
      * @param option 排序方向
      */
     public static void sort(File[] files, ListFilesOption option) {
-        if (option == ListFilesOption.SORT_LAST_MODIFIED_DESC
-                || option == ListFilesOption.SORT_LAST_MODIFIED_ASC
-                || option == ListFilesOption.SORT_LAST_ACCESS_DESC
-                || option == ListFilesOption.SORT_LAST_ACCESS_ASC
-                || option == ListFilesOption.SORT_CREATION_DESC
-                || option == ListFilesOption.SORT_CREATION_ASC) {
-
-            Arrays.sort(files, new Comparator<File>() {
-                public int compare(File f1, File f2) {
-                    FileAttributes fa1 = getFileAttributes(f1.getPath());
-                    FileAttributes fa2 = getFileAttributes(f2.getPath());
-
-                    long diff = 0L;
-                    if (option == ListFilesOption.SORT_LAST_MODIFIED_DESC
-                            || option == ListFilesOption.SORT_LAST_MODIFIED_ASC) {
-                        diff = fa1.getLastModifiedTime() - fa2.getLastModifiedTime();
-                    }
-                    if (option == ListFilesOption.SORT_LAST_ACCESS_DESC
-                            || option == ListFilesOption.SORT_LAST_ACCESS_ASC) {
-                        diff = fa1.getLastAccessTime() - fa2.getLastAccessTime();
-                    }
-                    if (option == ListFilesOption.SORT_CREATION_DESC
-                            || option == ListFilesOption.SORT_CREATION_ASC) {
-                        diff = fa1.getCreationTime() - fa2.getCreationTime();
-                    }
+        // 每个文件只读取一次日期，避免比较时反复读取属性
+        FileSorter.sort(files, option);
+    }
 
-                    if (option == ListFilesOption.SORT_LAST_MODIFIED_DESC
-                            || option == ListFilesOption.SORT_LAST_ACCESS_DESC
-                            || option == ListFilesOption.SORT_CREATION_DESC) {
-                        if (diff > 0) {
-                            return -1;
-                        } else if (diff == 0) {
-                            return 0;
-                        } else {
-                            return 1;
-                        }
-                    } else {
-                        if (diff > 0) {
-                            return 1;
-                        } else if (diff == 0) {
-                            return 0;
-                        } else {
-                            return -1;
-                        }
-                    }
-                }
-            });
+    /**
+     * 按照文件属性中的日期排序，直接使用已读取的属性，不访问文件系统
+     *
+     * @param attributes 文件属性列表
+     * @param option     排序方向
+     */
+    public static void sort(List<FileAttributes> attributes, ListFilesOption option) {
+        Comparator<FileAttributes> comparator = null;
+        switch (option) {
+            case SORT_LAST_MODIFIED_DESC:
+            case SORT_LAST_MODIFIED_ASC:
+                comparator = Comparator.comparingLong(FileAttributes::getLastModifiedTime);
+                break;
+            case SORT_LAST_ACCESS_DESC:
+            case SORT_LAST_ACCESS_ASC:
+                comparator = Comparator.comparingLong(FileAttributes::getLastAccessTime);
+                break;
+            case SORT_CREATION_DESC:
+            case SORT_CREATION_ASC:
+                comparator = Comparator.comparingLong(FileAttributes::getCreationTime);
+                break;
+            default:
+                return;
+        }
+
+        if (FileSorter.isDesc(option)) {
+            comparator = comparator.reversed();
         }
+        attributes.sort(comparator);
     }
 
     /**
@@ -1249,6 +2142,7 @@ public class FileUtil {
         if (isFile(path)) {
             try {
                 Files.write(Paths.get(path), bytes, option);
+                metadataChanged(path);
                 return true;
             } catch (IOException e) {
                 logger.debug(getLinesString("写文件失败，I/O异常。", path, e.getMessage()));
@@ -0,0 +1,126 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .gitignore风格的忽略规则，每个目录的忽略文件对该目录及其子目录生效，子目录的规则优先
+ * 支持#注释、!取反、结尾/仅匹配目录、开头/相对忽略文件所在目录、**跨目录匹配
+ */
+final class IgnoreRules {
+
+    private static Logger logger = LoggerFactory.getLogger(IgnoreRules.class);
+
+    private final IgnoreRules parent;
+    private final Path base;
+    private final List<Rule> rules;
+
+    private IgnoreRules(IgnoreRules parent, Path base, List<Rule> rules) {
+        this.parent = parent;
+        this.base = base;
+        this.rules = rules;
+    }
+
+    /**
+     * 读取目录下的忽略文件，不存在时返回上级规则
+     */
+    static IgnoreRules load(IgnoreRules parent, Path dir, String fileName) {
+        Path ignoreFile = dir.resolve(fileName);
+        if (!Files.isRegularFile(ignoreFile)) {
+            return parent;
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(ignoreFile, StandardCharsets.UTF_8)) {
+                Rule rule = Rule.parse(line);
+                if (null != rule) {
+                    rules.add(rule);
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "读取忽略文件失败。", ignoreFile.toString(), e.getMessage()));
+        }
+        return rules.isEmpty() ? parent : new IgnoreRules(parent, dir, rules);
+    }
+
+    /**
+     * 判断文件是否被忽略，后面的规则优先于前面的规则，本目录的规则优先于上级目录的规则
+     */
+    boolean isIgnored(Path path, boolean isDirectory) {
+        Path relative = base.relativize(path);
+        Path name = path.getFileName();
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            Rule rule = rules.get(i);
+            if (rule.matches(relative, name, isDirectory)) {
+                return !rule.negate;
+            }
+        }
+        return null != parent && parent.isIgnored(path, isDirectory);
+    }
+
+    private static class Rule {
+        final PathMatcher matcher;
+        final boolean negate;
+        final boolean directoryOnly;
+        // 不含/的规则只匹配文件名，可在任意层级生效
+        final boolean nameOnly;
+
+        Rule(PathMatcher matcher, boolean negate, boolean directoryOnly, boolean nameOnly) {
+            this.matcher = matcher;
+            this.negate = negate;
+            this.directoryOnly = directoryOnly;
+            this.nameOnly = nameOnly;
+        }
+
+        static Rule parse(String line) {
+            String pattern = line.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+
+            boolean negate = pattern.startsWith("!");
+            if (negate) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean nameOnly = !pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+
+            try {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+                return new Rule(matcher, negate, directoryOnly, nameOnly);
+            } catch (IllegalArgumentException e) {
+                logger.debug(String.join(System.getProperty("line.separator"), "忽略规则格式不正确。", line, e.getMessage()));
+                return null;
+            }
+        }
+
+        boolean matches(Path relative, Path name, boolean isDirectory) {
+            if (directoryOnly && !isDirectory) {
+                return false;
+            }
+            if (nameOnly) {
+                return null != name && matcher.matches(name);
+            }
+            return matcher.matches(relative);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 可选的目录列表缓存，按目录路径、ListFilesOption集合和扩展名缓存listFiles/listFileAttributes的结果
+ * 通过后台WatchService监听目录变化使缓存失效；对于不发送事件的文件系统（如部分网络文件系统），超过ttl的缓存同样失效
+ * 每个目录在列出其内容之前注册监听，缓存项失效或过期时取消不再需要的监听
+ * 返回的FileAttributes对象在多次命中间共享，请勿修改
+ */
+public class ListFilesCache implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(ListFilesCache.class);
+
+    private final long ttl;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // 被监听的目录，由this保护
+    private final Map<Path, Watch> watched = new HashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * @param ttl 缓存有效期（毫秒），小于1时仅依赖WatchService失效
+     */
+    public ListFilesCache(long ttl) {
+        this.ttl = ttl;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchThread = new Thread(this::watch, "list-files-cache-watcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "WatchService不可用，仅按ttl失效。", e.getMessage()));
+        }
+    }
+
+    /**
+     * 列出指定目录路径下的文件，优先使用缓存
+     *
+     * @param path       目录路径
+     * @param options    ListFilesOption数组，可取的值同FileUtil.listFiles
+     * @param extensions 扩展名
+     * @return 文件列表（副本，可修改）
+     */
+    @SuppressWarnings("unchecked")
+    public List<File> listFiles(String path, ListFilesOption[] options, String... extensions) {
+        Key key = new Key(false, path, options, extensions);
+        List<File> files = (List<File>) get(key);
+        if (null == files) {
+            Entry entry = new Entry(key, System.currentTimeMillis());
+            files = FileUtil.listFiles(path, options, extensions, dir -> watch(dir, entry));
+            put(entry, files);
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * 列出指定目录路径下的文件，优先使用缓存
+     *
+     * @param path    目录路径
+     * @param options ListFilesOption数组，可取的值同FileUtil.listFiles
+     * @return 文件列表（副本，可修改）
+     */
+    public List<File> listFiles(String path, ListFilesOption... options) {
+        return listFiles(path, options, (String[]) null);
+    }
+
+    /**
+     * 列出指定目录路径下文件的属性，优先使用缓存
+     *
+     * @param path       目录路径
+     * @param options    ListFilesOption数组，可取的值同FileUtil.listFiles
+     * @param extensions 扩展名
+     * @return 文件属性列表（列表为副本，属性对象共享）
+     */
+    @SuppressWarnings("unchecked")
+    public List<FileAttributes> listFileAttributes(String path, ListFilesOption[] options, String... extensions) {
+        Key key = new Key(true, path, options, extensions);
+        List<FileAttributes> files = (List<FileAttributes>) get(key);
+        if (null == files) {
+            Entry entry = new Entry(key, System.currentTimeMillis());
+            files = FileUtil.listFileAttributes(path, options, extensions, dir -> watch(dir, entry));
+            put(entry, files);
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * 使指定目录路径的缓存失效
+     *
+     * @param path 目录路径
+     */
+    public synchronized void invalidate(String path) {
+        Path dir = Paths.get(path).toAbsolutePath().normalize();
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.key.dir.equals(dir)) {
+                evict(entry);
+            }
+        }
+        invalidate(dir);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void invalidateAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            evict(entry);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        entries.clear();
+        watched.clear();
+        if (null != watchService) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug(e.getMessage());
+            }
+        }
+    }
+
+    private List<?> get(Key key) {
+        Entry entry = entries.get(key);
+        if (null != entry) {
+            if (ttl < 1 || System.currentTimeMillis() - entry.loadTime <= ttl) {
+                hitCount.incrementAndGet();
+                return entry.files;
+            }
+            // 已过期，同时取消不再需要的监听
+            synchronized (this) {
+                evict(entry);
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 列出期间目录已变化（失效）时不缓存
+     */
+    private synchronized void put(Entry entry, List<?> files) {
+        if (entry.invalidated) {
+            release(entry);
+            return;
+        }
+        entry.files = Collections.unmodifiableList(new ArrayList<>(files));
+        Entry old = entries.put(entry.key, entry);
+        if (null != old) {
+            old.invalidated = true;
+            release(old);
+        }
+    }
+
+    /**
+     * 在列出目录内容之前注册监听，列出期间发生的变化同样会使缓存项失效
+     */
+    private synchronized void watch(Path path, Entry entry) {
+        Path dir = path.toAbsolutePath().normalize();
+        Watch watch = watched.get(dir);
+        if (null == watch) {
+            WatchKey watchKey = null;
+            if (null != watchService) {
+                try {
+                    watchKey = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+                    logger.debug(String.join(System.getProperty("line.separator"), "监听目录失败，仅按ttl失效。", dir.toString(), e.getMessage()));
+                }
+            }
+            watch = new Watch(watchKey);
+            watched.put(dir, watch);
+        }
+        if (watch.entries.add(entry)) {
+            entry.dirs.add(dir);
+        }
+    }
+
+    /**
+     * 后台线程，收到目录变化事件后使依赖该目录的缓存失效
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey watchKey = watchService.take();
+                // 先取出事件再失效，保证之后的变化能触发新的事件
+                watchKey.pollEvents();
+                Path dir = (Path) watchKey.watchable();
+                synchronized (this) {
+                    invalidate(dir);
+                    if (!watchKey.reset()) {
+                        Watch watch = watched.get(dir);
+                        if (null != watch && watch.watchKey == watchKey) {
+                            watched.remove(dir);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("目录缓存已关闭。");
+        }
+    }
+
+    private void invalidate(Path dir) {
+        Watch watch = watched.get(dir);
+        if (null != watch) {
+            for (Entry entry : new ArrayList<>(watch.entries)) {
+                evict(entry);
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        entry.invalidated = true;
+        entries.remove(entry.key, entry);
+        release(entry);
+    }
+
+    /**
+     * 解除缓存项对目录的依赖，没有缓存项依赖的目录取消监听
+     */
+    private void release(Entry entry) {
+        for (Path dir : entry.dirs) {
+            Watch watch = watched.get(dir);
+            if (null != watch && watch.entries.remove(entry) && watch.entries.isEmpty()) {
+                if (null != watch.watchKey) {
+                    watch.watchKey.cancel();
+                }
+                watched.remove(dir);
+            }
+        }
+        entry.dirs.clear();
+    }
+
+    /**
+     * 缓存项，列出前创建，files在列出完成后设置；dirs、invalidated由this保护
+     */
+    private static class Entry {
+        final Key key;
+        final long loadTime;
+        volatile List<?> files;
+        final List<Path> dirs = new ArrayList<>();
+        boolean invalidated;
+
+        Entry(Key key, long loadTime) {
+            this.key = key;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * 被监听的目录及依赖该目录的缓存项
+     */
+    private static class Watch {
+        final WatchKey watchKey;
+        final Set<Entry> entries = new HashSet<>();
+
+        Watch(WatchKey watchKey) {
+            this.watchKey = watchKey;
+        }
+    }
+
+    private static class Key {
+        final boolean attributes;
+        // 返回结果中的路径与调用时的写法一致，所以按原始路径区分，按规范化后的目录监听
+        final String path;
+        final Path dir;
+        final Set<ListFilesOption> options;
+        final List<String> extensions;
+
+        Key(boolean attributes, String path, ListFilesOption[] options, String[] extensions) {
+            this.attributes = attributes;
+            this.path = path;
+            this.dir = Paths.get(path).toAbsolutePath().normalize();
+            this.options = EnumSet.noneOf(ListFilesOption.class);
+            if (null != options) {
+                this.options.addAll(Arrays.asList(options));
+            }
+            this.extensions = null == extensions ? Collections.emptyList() : new ArrayList<>(Arrays.asList(extensions));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return attributes == key.attributes
+                    && path.equals(key.path)
+                    && options.equals(key.options)
+                    && extensions.equals(key.extensions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(attributes, path, options, extensions);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.lechisoft.utils.file;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * 解析后的ListFilesOption，供listFiles及其各种遍历方式共用
+ */
+final class ListFilesCriteria {
+    boolean isRecursion;
+    boolean ignoreFile;
+    boolean ignoreDirectory;
+    boolean ignoreHidden;
+    ListFilesOption extensionOption;
+    ListFilesOption sortOption;
+    // 扩展名只在创建时编译一次
+    ExtensionSet extensions;
+    // 额外的过滤器，可为null
+    FileMatcher matcher;
+    // 剪枝规则，可为null
+    PruneRules prune;
+    // 列出每个目录的内容之前回调，可为null
+    Consumer<Path> visitor;
+
+    ListFilesCriteria(ListFilesOption[] options, String... extensions) {
+        this.extensions = new ExtensionSet(extensions);
+
+        if (null != options) {
+            for (ListFilesOption option : options) {
+                switch (option) {
+                    case RECURSION:
+                        isRecursion = true;
+                        break;
+                    case IGNORE_FILE:
+                        ignoreFile = true;
+                        break;
+                    case IGNORE_DIRECTORY:
+                        ignoreDirectory = true;
+                        break;
+                    case IGNORE_HIDDEN:
+                        ignoreHidden = true;
+                        break;
+                    case INCLUDE_EXTENSION:
+                    case EXCLUDE_EXTENSION:
+                        extensionOption = option;
+                        break;
+                    case SORT_LAST_MODIFIED_DESC:
+                    case SORT_LAST_MODIFIED_ASC:
+                    case SORT_LAST_ACCESS_DESC:
+                    case SORT_LAST_ACCESS_ASC:
+                    case SORT_CREATION_DESC:
+                    case SORT_CREATION_ASC:
+                        sortOption = option;
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 判断文件是否应出现在结果中
+     */
+    boolean accept(File file) {
+        // 如果是文件，且不忽略文件，且没隐藏（或隐藏但不忽略隐藏）
+        if (file.isFile()) {
+            return !ignoreFile
+                    && (!ignoreHidden || !file.isHidden())
+                    && acceptExtension(file.getName())
+                    && (null == matcher || matcher.matches(file.toPath()));
+        }
+
+        // 如果是目录，且不忽略目录，且没隐藏（或隐藏但不忽略隐藏），指定扩展过滤时不返回目录
+        return file.isDirectory()
+                && !ignoreDirectory
+                && (!ignoreHidden || !file.isHidden())
+                && null == extensionOption
+                && (null == matcher || matcher.matches(file.toPath()));
+    }
+
+    /**
+     * 判断文件是否应出现在结果中，使用已读取的属性，不再访问文件系统
+     */
+    boolean accept(FileAttributes attributes) {
+        if (attributes.isFile()) {
+            return !ignoreFile
+                    && (!ignoreHidden || !attributes.isHidden())
+                    && acceptExtension(attributes.getFullName())
+                    && (null == matcher || matcher.matches(Paths.get(attributes.getPath())));
+        }
+
+        return attributes.isDirectory()
+                && !ignoreDirectory
+                && (!ignoreHidden || !attributes.isHidden())
+                && null == extensionOption
+                && (null == matcher || matcher.matches(Paths.get(attributes.getPath())));
+    }
+
+    /**
+     * 开始遍历的目录
+     */
+    Scope root(File dir) {
+        return new Scope(0, loadRules(null, dir));
+    }
+
+    /**
+     * 进入子目录
+     */
+    Scope child(Scope parent, File dir) {
+        return new Scope(parent.depth + 1, loadRules(parent.rules, dir));
+    }
+
+    /**
+     * 判断是否被剪枝，被剪枝的文件不返回，被剪枝的目录也不进入
+     */
+    boolean pruned(Scope scope, File file) {
+        if (null == prune) {
+            return false;
+        }
+        boolean isDirectory = file.isDirectory();
+        return pruned(scope, file.toPath(), isDirectory, isDirectory && prune.isPruneHidden() && file.isHidden());
+    }
+
+    /**
+     * 判断是否被剪枝，使用已读取的属性
+     */
+    boolean pruned(Scope scope, FileAttributes attributes) {
+        if (null == prune) {
+            return false;
+        }
+        boolean isDirectory = attributes.isDirectory();
+        return pruned(scope, Paths.get(attributes.getPath()), isDirectory, isDirectory && prune.isPruneHidden() && attributes.isHidden());
+    }
+
+    private boolean pruned(Scope scope, Path path, boolean isDirectory, boolean isHiddenDirectory) {
+        if (isHiddenDirectory) {
+            return true;
+        }
+        if (isDirectory && null != prune.getDirectoryMatcher() && prune.getDirectoryMatcher().matches(path)) {
+            return true;
+        }
+        return null != scope.rules && scope.rules.isIgnored(path, isDirectory);
+    }
+
+    /**
+     * 判断是否需要进入该目录递归
+     */
+    boolean descend(Scope scope, File file) {
+        return isRecursion && withinDepth(scope) && file.isDirectory();
+    }
+
+    /**
+     * 判断是否需要进入该目录递归，使用已读取的属性
+     */
+    boolean descend(Scope scope, FileAttributes attributes) {
+        return isRecursion && withinDepth(scope) && attributes.isDirectory();
+    }
+
+    // 子目录下文件的深度为scope.depth + 2
+    private boolean withinDepth(Scope scope) {
+        return null == prune || prune.getMaxDepth() < 1 || scope.depth + 2 <= prune.getMaxDepth();
+    }
+
+    private IgnoreRules loadRules(IgnoreRules parent, File dir) {
+        if (null == prune || null == prune.getIgnoreFileName()) {
+            return parent;
+        }
+        return IgnoreRules.load(parent, dir.toPath(), prune.getIgnoreFileName());
+    }
+
+    private boolean acceptExtension(String fullName) {
+        // 如果不指定扩展过滤
+        if (null == extensionOption) {
+            return true;
+        }
+        // 如果有扩展名，则进行过滤
+        if (!extensions.isEmpty()) {
+            boolean hasFlg = extensions.matches(fullName);
+
+            // 包含
+            if (extensionOption == ListFilesOption.INCLUDE_EXTENSION) {
+                return hasFlg;
+            }
+            // 排除
+            return !hasFlg;
+        }
+        return false;
+    }
+
+    /**
+     * 遍历中某个目录的上下文，目录自身深度为depth，其下文件深度为depth + 1
+     */
+    static final class Scope {
+        final int depth;
+        final IgnoreRules rules;
+
+        Scope(int depth, IgnoreRules rules) {
+            this.depth = depth;
+            this.rules = rules;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.lechisoft.utils.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行列出目录下文件的ForkJoin任务，每个子目录拆分为一个子任务，由ForkJoinPool工作窃取调度
+ * keepOrder为true时结果顺序与listFiles一致；为false时直接写入共享集合，不保证顺序，吞吐量更高
+ */
+class ListFilesTask extends RecursiveTask<List<File>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final File dir;
+    private final ListFilesCriteria criteria;
+    private final ListFilesCriteria.Scope scope;
+    private final boolean keepOrder;
+    private final Collection<File> shared;
+
+    ListFilesTask(File dir, ListFilesCriteria criteria, ListFilesCriteria.Scope scope, boolean keepOrder, Collection<File> shared) {
+        this.dir = dir;
+        this.criteria = criteria;
+        this.scope = scope;
+        this.keepOrder = keepOrder;
+        this.shared = shared;
+    }
+
+    @Override
+    protected List<File> compute() {
+        List<File> files = new ArrayList<>();
+        File[] listFiles = dir.listFiles(); // 可能会返回null
+
+        if (null == listFiles) {
+            return files;
+        }
+
+        // 排序
+        if (null != criteria.sortOption) {
+            FileUtil.sort(listFiles, criteria.sortOption);
+        }
+
+        // 有序模式下，按原顺序记录文件与子任务，待子任务完成后再拼接
+        List<Object> segments = keepOrder ? new ArrayList<>(listFiles.length) : null;
+        List<ListFilesTask> tasks = new ArrayList<>();
+
+        for (File file : listFiles) {
+            // 剪枝
+            if (criteria.pruned(scope, file)) {
+                continue;
+            }
+
+            if (criteria.accept(file)) {
+                if (keepOrder) {
+                    segments.add(file);
+                } else {
+                    shared.add(file);
+                }
+            }
+
+            // 递归，子目录交给子任务
+            if (criteria.descend(scope, file)) {
+                ListFilesTask task = new ListFilesTask(file, criteria, criteria.child(scope, file), keepOrder, shared);
+                task.fork();
+                tasks.add(task);
+                if (keepOrder) {
+                    segments.add(task);
+                }
+            }
+        }
+
+        if (!keepOrder) {
+            for (ListFilesTask task : tasks) {
+                task.join();
+            }
+            return files;
+        }
+
+        for (Object segment : segments) {
+            if (segment instanceof ListFilesTask) {
+                files.addAll(((ListFilesTask) segment).join());
+            } else {
+                files.add((File) segment);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,205 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FileUtil属性获取方法前的元数据缓存，容量有限（LRU淘汰），超过staleness的缓存视为过期
+ * 每个路径只读取一次BasicFileAttributes（不跟随符号链接），不存在的路径同样缓存
+ * 缓存的路径按父目录建立索引，使一个路径及其子树失效的开销只与子树中缓存的路径数有关
+ */
+final class MetadataCache {
+
+    private static Logger logger = LoggerFactory.getLogger(MetadataCache.class);
+
+    private final int maxSize;
+    private final long staleness;
+    private final LinkedHashMap<Path, MetadataCache.Entry> entries;
+    // 按父目录索引已缓存的路径，包括自身未缓存但有后代被缓存的中间目录，失效时只访问对应的子树
+    private final Map<Path, Set<Path>> children = new HashMap<>();
+    // 每次失效加一，读取期间发生过失效时不写入缓存，避免把失效前读到的属性重新放回
+    private long generation;
+
+    MetadataCache(int maxSize, long staleness) {
+        this.maxSize = maxSize;
+        this.staleness = staleness;
+        this.entries = new LinkedHashMap<Path, MetadataCache.Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, MetadataCache.Entry> eldest) {
+                if (size() > MetadataCache.this.maxSize) {
+                    unindex(eldest.getKey(), true);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的元数据，不存在或过期时重新读取；读取失败（文件不存在除外）时返回null，由调用方直接访问文件系统
+     */
+    Entry get(String path) {
+        Path key = key(path);
+        long now = System.currentTimeMillis();
+
+        long stamp;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (null != entry && now - entry.loadTime <= staleness) {
+                return entry;
+            }
+            stamp = generation;
+        }
+
+        Entry entry;
+        try {
+            entry = new Entry(Files.readAttributes(key, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS), now);
+        } catch (NoSuchFileException e) {
+            entry = new Entry(null, now);
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "读取元数据失败。", path, e.getMessage()));
+            return null;
+        }
+
+        synchronized (this) {
+            if (stamp == generation) {
+                entries.put(key, entry);
+                // 容量为0时刚放入即被淘汰
+                if (entries.containsKey(key)) {
+                    index(key);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 获取缓存的拥有者，第一次访问时读取
+     */
+    UserPrincipal getOwner(String path, Entry entry) throws IOException {
+        UserPrincipal owner = entry.owner;
+        if (null == owner) {
+            owner = Files.getOwner(key(path), LinkOption.NOFOLLOW_LINKS);
+            entry.owner = owner;
+        }
+        return owner;
+    }
+
+    /**
+     * 使路径及其下所有路径的缓存失效
+     */
+    synchronized void invalidate(String path) {
+        generation++;
+        Path key = key(path);
+        Deque<Path> stack = new ArrayDeque<>();
+        stack.push(key);
+        while (!stack.isEmpty()) {
+            Path p = stack.pop();
+            entries.remove(p);
+            Set<Path> set = children.remove(p);
+            if (null != set) {
+                set.forEach(stack::push);
+            }
+        }
+        unindex(key, false);
+    }
+
+    /**
+     * 使各级父目录的缓存失效，只移除父目录本身
+     */
+    synchronized void invalidateAncestors(String path) {
+        generation++;
+        Path parent = key(path).getParent();
+        while (null != parent) {
+            if (null != entries.remove(parent)) {
+                unindex(parent, false);
+            }
+            parent = parent.getParent();
+        }
+    }
+
+    /**
+     * 把路径挂到父目录下，逐级向上直到已在索引中的目录
+     */
+    private void index(Path key) {
+        Path child = key;
+        Path parent = key.getParent();
+        while (null != parent) {
+            Set<Path> set = children.get(parent);
+            boolean indexed = null != set;
+            if (!indexed) {
+                set = new HashSet<>();
+                children.put(parent, set);
+            }
+            set.add(child);
+            if (indexed) {
+                break;
+            }
+            child = parent;
+            parent = parent.getParent();
+        }
+    }
+
+    /**
+     * 路径的缓存已移除（evicting为true时即将被移除）且没有后代被缓存时，从父目录下摘除，
+     * 并逐级向上摘除不再需要的中间目录
+     */
+    private void unindex(Path key, boolean evicting) {
+        Path child = key;
+        boolean removing = evicting;
+        while (!children.containsKey(child) && (removing || !entries.containsKey(child))) {
+            removing = false;
+            Path parent = child.getParent();
+            if (null == parent) {
+                break;
+            }
+            Set<Path> set = children.get(parent);
+            if (null == set || !set.remove(child) || !set.isEmpty()) {
+                break;
+            }
+            children.remove(parent);
+            child = parent;
+        }
+    }
+
+    private static Path key(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    static final class Entry {
+        // 文件不存在时为null
+        final BasicFileAttributes attributes;
+        final long loadTime;
+        volatile UserPrincipal owner;
+
+        Entry(BasicFileAttributes attributes, long loadTime) {
+            this.attributes = attributes;
+            this.loadTime = loadTime;
+        }
+
+        boolean exists() {
+            return null != attributes;
+        }
+
+        // 符号链接的isFile/isDirectory需要跟随链接，不能使用缓存
+        boolean isLink() {
+            return null != attributes && attributes.isSymbolicLink();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 并行拷贝目录树：先按先序依次创建所有目录，再由固定大小的线程池并发拷贝文件
+ * 任一文件拷贝失败后不再开始新的拷贝，新创建的路径记录在journal中，由调用方回滚
+ * 被中断时先等待正在进行的拷贝结束再返回，保证回滚时journal已完整
+ */
+final class ParallelCopier {
+
+    private static Logger logger = LoggerFactory.getLogger(ParallelCopier.class);
+
+    private ParallelCopier() {
+    }
+
+    static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option, int parallelism, CopyJournal journal) {
+        if (!FileUtil.exists(path)) {
+            return false;
+        }
+
+        // 先拷贝文件或目录文件自身
+        Path toRoot = Paths.get(dirPath, FileUtil.getFullName(path));
+        if (!copyFile(path, toRoot, copyAttributes, option, journal)) {
+            return false;
+        }
+
+        if (!FileUtil.isDirectory(path)) {
+            return true;
+        }
+
+        // 先序遍历，父目录总在子文件之前
+        Path fromRoot = Paths.get(path);
+        List<File> files = new ArrayList<>();
+        for (File file : FileUtil.listFiles(path, ListFilesOption.RECURSION)) {
+            Path toPath = toRoot.resolve(fromRoot.relativize(file.toPath()));
+            if (file.isDirectory()) {
+                // 创建目录
+                if (!copyFile(file.getPath(), toPath, copyAttributes, option, journal)) {
+                    return false;
+                }
+            } else {
+                files.add(file);
+            }
+        }
+
+        // 并发拷贝文件
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (File file : files) {
+                Path toPath = toRoot.resolve(fromRoot.relativize(file.toPath()));
+                executor.execute(() -> {
+                    if (failed.get()) {
+                        return;
+                    }
+                    if (!copyFile(file.getPath(), toPath, copyAttributes, option, journal)) {
+                        failed.set(true);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "拷贝被中断。", path));
+            failed.set(true);
+            executor.shutdownNow();
+            // 等待正在拷贝的文件结束并记录到journal后再返回，否则调用方回滚时可能漏删
+            awaitTermination(executor);
+            Thread.currentThread().interrupt();
+        }
+
+        return !failed.get();
+    }
+
+    /**
+     * 等待线程池结束，期间再次被中断也继续等待
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        while (true) {
+            try {
+                if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                logger.debug("等待拷贝线程结束时被中断，继续等待。");
+            }
+        }
+    }
+
+    /**
+     * 拷贝单个文件或目录文件自身，只记录新创建的，且在创建之前记录
+     */
+    private static boolean copyFile(String path, Path toPath, boolean copyAttributes, CopyFilesOption option, CopyJournal journal) {
+        if (!FileUtil.isTargetExisting(toPath.toString()) && !journal.record(toPath.toString())) {
+            return false;
+        }
+        return FileUtil.copyFile(path, toPath.getParent().toString(), copyAttributes, option, null);
+    }
+}
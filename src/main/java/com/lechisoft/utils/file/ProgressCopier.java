@@ -0,0 +1,290 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 带进度与限速的拷贝：先按先序列出整棵树（不跟随符号链接）统计文件数与字节数，再逐个拷贝，
+ * 普通文件按块传输，每块传输前从令牌桶申请额度，传输后回调进度；目录与符号链接由FileUtil.copyFile拷贝
+ * 每个文件及每块传输前检查取消标记，取消后拷贝失败，由调用方回滚
+ * 移动模式（跨文件系统移动）：每个文件拷贝完成后立即删除源文件，逐步释放源端空间，最后自底向上删除源目录；
+ * 失败时已移动的文件保留在目标端，不回滚
+ */
+final class ProgressCopier {
+
+    private static Logger logger = LoggerFactory.getLogger(ProgressCopier.class);
+
+    private static final long CHUNK_SIZE = 1024 * 1024;
+    // 计算拷贝速度的时间窗口（纳秒）
+    private static final long RATE_WINDOW = 500_000_000L;
+
+    private final boolean copyAttributes;
+    private final CopyFilesOption option;
+    private final CopyProgressListener listener;
+    private final BandwidthLimiter limiter;
+    private final CopyJournal journal;
+    private final CancellationToken token;
+    private final boolean move;
+    private final CopyProgress progress = new CopyProgress();
+
+    // 实际传输的字节数，不含跳过的，用于计算速度
+    private long transferred;
+    private final long start = System.nanoTime();
+    private long windowStart = start;
+    private long windowTransferred;
+
+    private ProgressCopier(boolean copyAttributes, CopyFilesOption option, CopyProgressListener listener, long bytesPerSecond, CopyJournal journal, CancellationToken token, boolean move) {
+        this.copyAttributes = copyAttributes;
+        this.option = option;
+        this.listener = listener;
+        this.limiter = bytesPerSecond > 0 ? new BandwidthLimiter(bytesPerSecond) : null;
+        this.journal = journal;
+        this.token = token;
+        this.move = move;
+    }
+
+    static boolean copy(String path, String dirPath, boolean copyAttributes, CopyFilesOption option,
+                        CopyProgressListener listener, long bytesPerSecond, CopyJournal journal, CancellationToken token) {
+        return new ProgressCopier(copyAttributes, option, listener, bytesPerSecond, journal, token, false).copy(path, dirPath);
+    }
+
+    static boolean move(String path, String dirPath, CopyProgressListener listener, long bytesPerSecond, CopyJournal journal, CancellationToken token) {
+        return new ProgressCopier(true, CopyFilesOption.REPLACE_EXISTING, listener, bytesPerSecond, journal, token, true).copy(path, dirPath);
+    }
+
+    private boolean copy(String path, String dirPath) {
+        Path fromRoot = Paths.get(path);
+        List<Entry> entries = new ArrayList<>();
+        if (!list(fromRoot, entries)) {
+            return false;
+        }
+        for (Entry entry : entries) {
+            if (!entry.directory) {
+                progress.setTotalFiles(progress.getTotalFiles() + 1);
+                progress.setTotalBytes(progress.getTotalBytes() + entry.size);
+            }
+        }
+        report();
+
+        // 先序，父目录总在子文件之前
+        Path toRoot = Paths.get(dirPath, FileUtil.getFullName(path));
+        for (Entry entry : entries) {
+            if (!copy(entry, toRoot.resolve(fromRoot.relativize(entry.path)))) {
+                return false;
+            }
+        }
+
+        // 移动模式下，文件已逐个删除，再自底向上删除源目录
+        if (move) {
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                if (entries.get(i).directory && !deleteSource(entries.get(i).path)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按先序列出整棵树，不跟随符号链接：指向目录的符号链接作为链接本身拷贝，不进入其中，
+     * 避免把树外的文件拷贝到自身上，或在移动模式下删除树外的文件
+     */
+    private static boolean list(Path root, List<Entry> entries) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    entries.add(new Entry(dir, attrs));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    entries.add(new Entry(file, attrs));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    throw exc;
+                }
+            });
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "列出文件失败。", root.toString(), e.getMessage()));
+            return false;
+        }
+    }
+
+    private boolean copy(Entry entry, Path to) {
+        if (isCancelled()) {
+            return false;
+        }
+        Path from = entry.path;
+
+        // 目标经由符号链接指向源文件本身：拷贝时视为已拷贝且不记录（回滚会删除源文件），移动时失败（删除源文件会丢失数据）
+        if (!entry.directory && !entry.link) {
+            try {
+                if (ChannelTransfer.isSameFile(from, to)) {
+                    logger.debug(String.join(System.getProperty("line.separator"), "源文件与目标文件相同。", from.toString(), to.toString()));
+                    if (move) {
+                        return false;
+                    }
+                    progress.setFilesDone(progress.getFilesDone() + 1);
+                    progress.setBytesDone(progress.getBytesDone() + entry.size);
+                    report();
+                    return true;
+                }
+            } catch (IOException | SecurityException e) {
+                logger.debug(String.join(System.getProperty("line.separator"), "比较源文件与目标文件失败。", to.toString(), e.getMessage()));
+                return false;
+            }
+        }
+
+        // 创建之前记录，只记录新创建的，已存在的回滚时不能删除
+        boolean existed = FileUtil.isTargetExisting(to.toString());
+        if (!existed && !journal.record(to.toString())) {
+            return false;
+        }
+        long bytesDone = progress.getBytesDone();
+
+        boolean r;
+        if (entry.directory || entry.link) {
+            r = FileUtil.copyFile(from.toString(), to.getParent().toString(), copyAttributes, option, null);
+        } else {
+            r = transfer(from, to, existed);
+        }
+
+        if (r && move && !entry.directory) {
+            r = deleteSource(from);
+        }
+
+        if (r && !entry.directory) {
+            progress.setFilesDone(progress.getFilesDone() + 1);
+            progress.setBytesDone(bytesDone + entry.size);
+            report();
+        }
+        return r;
+    }
+
+    private boolean transfer(Path from, Path to, boolean existed) {
+        // 与FileUtil.copyFile的跳过规则一致
+        if (existed && (option == CopyFilesOption.SKIP_EXISTING || option == CopyFilesOption.SYNC && FileSyncer.isSame(from, to))) {
+            return true;
+        }
+        boolean replace = option == CopyFilesOption.REPLACE_EXISTING || option == CopyFilesOption.SYNC;
+
+        boolean created = false;
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = ChannelTransfer.create(to, replace)) {
+            created = true;
+            long chunkSize = null == limiter ? CHUNK_SIZE : Math.min(CHUNK_SIZE, limiter.capacity());
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                if (isCancelled()) {
+                    throw new IOException("拷贝已取消。");
+                }
+                long n = Math.min(chunkSize, size - position);
+                if (null != limiter) {
+                    limiter.acquire(n);
+                }
+                ChannelTransfer.transfer(in, out, position, position + n, n);
+                position += n;
+
+                transferred += n;
+                progress.setBytesDone(progress.getBytesDone() + n);
+                report();
+            }
+        } catch (IOException | SecurityException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.debug(String.join(System.getProperty("line.separator"), "拷贝文件失败。", to.toString(), String.valueOf(e.getMessage())));
+            if (created) {
+                try {
+                    Files.deleteIfExists(to);
+                } catch (IOException ex) {
+                    logger.debug(String.join(System.getProperty("line.separator"), "删除不完整的文件失败。", to.toString(), ex.getMessage()));
+                }
+            }
+            return false;
+        }
+
+        try {
+            if (copyAttributes) {
+                ChannelTransfer.copyAttributes(from, to);
+            }
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "拷贝文件属性失败。", to.toString(), e.getMessage()));
+            return false;
+        } finally {
+            FileUtil.metadataChanged(to.toString());
+        }
+        return true;
+    }
+
+    private boolean deleteSource(Path from) {
+        try {
+            Files.delete(from);
+            FileUtil.metadataChanged(from.toString());
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "删除源文件失败。", from.toString(), e.getMessage()));
+            return false;
+        }
+    }
+
+    private boolean isCancelled() {
+        return null != token && token.isCancelled();
+    }
+
+    /**
+     * 更新速度与剩余时间并回调
+     */
+    private void report() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW) {
+            progress.setRate((long) ((transferred - windowTransferred) * 1e9 / elapsed));
+            windowStart = now;
+            windowTransferred = transferred;
+        } else if (windowStart == start && elapsed > 0) {
+            // 第一个时间窗口内使用平均速度
+            progress.setRate((long) (transferred * 1e9 / elapsed));
+        }
+
+        long rate = progress.getRate();
+        progress.setEta(rate > 0 ? (progress.getTotalBytes() - progress.getBytesDone()) * 1000 / rate : -1L);
+
+        if (null != listener) {
+            listener.onProgress(progress);
+        }
+    }
+
+    private static final class Entry {
+        final Path path;
+        final boolean directory;
+        final boolean link;
+        final long size;
+
+        Entry(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.directory = attributes.isDirectory();
+            this.link = attributes.isSymbolicLink();
+            this.size = attributes.isRegularFile() ? attributes.size() : 0L;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 列出文件时的剪枝规则，被剪掉的目录既不返回也不会进入递归
+ */
+public class PruneRules {
+    // 最大深度，目录下的直接子文件深度为1，小于1时不限制
+    private int maxDepth;
+    // 不进入隐藏目录
+    private boolean pruneHidden;
+    // 匹配的目录不进入，如FileMatcher.glob("{node_modules,.git}")
+    private FileMatcher directoryMatcher;
+    // .gitignore风格的忽略文件名，如.gitignore，匹配的文件和目录均被忽略
+    private String ignoreFileName;
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public boolean isPruneHidden() {
+        return pruneHidden;
+    }
+
+    public void setPruneHidden(boolean pruneHidden) {
+        this.pruneHidden = pruneHidden;
+    }
+
+    public FileMatcher getDirectoryMatcher() {
+        return directoryMatcher;
+    }
+
+    public void setDirectoryMatcher(FileMatcher directoryMatcher) {
+        this.directoryMatcher = directoryMatcher;
+    }
+
+    public String getIgnoreFileName() {
+        return ignoreFileName;
+    }
+
+    public void setIgnoreFileName(String ignoreFileName) {
+        this.ignoreFileName = ignoreFileName;
+    }
+}
@@ -0,0 +1,348 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批量重命名、移动，作为一个整体执行：全部成功，或者全部还原
+ * 执行前先把所有操作写入日志文件并刷盘（预写日志），全部成功后删除日志；进程崩溃后可用recover根据日志回滚或继续完成
+ * 操作按源文件所在目录分组依次执行，减少同一目录的反复争用；每个操作都是同一文件系统内的原子移动
+ * 同一批中的源路径与目标路径不能重复，也不能互相重叠（如a改名为b，同时b改名为c）或嵌套（如a改名为b，同时移动a/1.txt），
+ * 以便根据文件状态判断每个操作是否已执行
+ * 目标所在目录必须已存在，不会自动创建（回滚时无法区分哪些目录是本批创建的）
+ * 每个操作执行前重新确认目标不存在，但Java没有不覆盖的原子重命名，确认与重命名之间被其他进程创建的同名文件仍会被覆盖
+ */
+public class RenameBatch {
+
+    private static Logger logger = LoggerFactory.getLogger(RenameBatch.class);
+
+    private final String journalPath;
+    private final List<Path[]> operations = new ArrayList<>();
+
+    /**
+     * @param journalPath 日志文件路径，应与被操作的文件位于同一文件系统
+     */
+    public RenameBatch(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    /**
+     * 添加重命名操作
+     *
+     * @param path 文件路径
+     * @param name 新名称
+     * @return 当前对象
+     */
+    public RenameBatch rename(String path, String name) {
+        Path from = Paths.get(path).toAbsolutePath().normalize();
+        operations.add(new Path[]{from, from.resolveSibling(name)});
+        return this;
+    }
+
+    /**
+     * 添加移动操作
+     *
+     * @param path    文件路径
+     * @param dirPath 目标目录路径
+     * @return 当前对象
+     */
+    public RenameBatch move(String path, String dirPath) {
+        Path from = Paths.get(path).toAbsolutePath().normalize();
+        operations.add(new Path[]{from, Paths.get(dirPath).toAbsolutePath().normalize().resolve(from.getFileName())});
+        return this;
+    }
+
+    /**
+     * 执行所有操作，任一操作失败时还原已执行的操作
+     *
+     * @return 是否全部执行成功
+     */
+    public boolean commit() {
+        if (!validate()) {
+            return false;
+        }
+
+        // 按源目录分组，组内保持添加顺序
+        List<Path[]> sorted = new ArrayList<>(operations);
+        sorted.sort(Comparator.comparing(operation -> operation[0].getParent().toString()));
+
+        // 预写日志
+        if (!writeJournal(journalPath, sorted)) {
+            return false;
+        }
+
+        int applied = 0;
+        boolean r = true;
+        for (Path[] operation : sorted) {
+            if (!apply(operation[0], operation[1])) {
+                r = false;
+                break;
+            }
+            applied++;
+        }
+
+        if (!r) {
+            for (int i = applied - 1; i >= 0; i--) {
+                if (!apply(sorted.get(i)[1], sorted.get(i)[0])) {
+                    // 还原失败，保留日志以便之后recover
+                    logger.debug(String.join(System.getProperty("line.separator"), "还原失败，保留日志。", journalPath));
+                    return false;
+                }
+            }
+        }
+
+        deleteJournal(journalPath);
+        return r;
+    }
+
+    /**
+     * 根据崩溃后遗留的日志恢复：回滚时还原已执行的操作，否则执行尚未执行的操作，完成后删除日志
+     *
+     * @param journalPath 日志文件路径
+     * @param rollForward 为true时继续完成，为false时回滚
+     * @return 是否恢复成功
+     */
+    public static boolean recover(String journalPath, boolean rollForward) {
+        List<Path[]> operations = readJournal(journalPath);
+        if (null == operations) {
+            return false;
+        }
+
+        boolean r = true;
+        if (rollForward) {
+            for (Path[] operation : operations) {
+                // 源存在且目标不存在说明尚未执行
+                if (exists(operation[0]) && !exists(operation[1])) {
+                    r &= apply(operation[0], operation[1]);
+                }
+            }
+        } else {
+            for (int i = operations.size() - 1; i >= 0; i--) {
+                Path[] operation = operations.get(i);
+                // 目标存在且源不存在说明已执行
+                if (exists(operation[1]) && !exists(operation[0])) {
+                    r &= apply(operation[1], operation[0]);
+                }
+            }
+        }
+
+        if (r) {
+            deleteJournal(journalPath);
+        }
+        return r;
+    }
+
+    /**
+     * 源路径都存在，目标路径都不存在且所在目录存在，且没有重复、重叠或嵌套
+     */
+    private boolean validate() {
+        Set<Path> paths = new HashSet<>();
+        for (Path[] operation : operations) {
+            if (!paths.add(operation[0]) || !paths.add(operation[1])) {
+                logger.debug(String.join(System.getProperty("line.separator"), "批量重命名失败，路径重复。", operation[0].toString(), operation[1].toString()));
+                return false;
+            }
+            if (!exists(operation[0])) {
+                logger.debug(String.join(System.getProperty("line.separator"), "批量重命名失败，文件不存在。", operation[0].toString()));
+                return false;
+            }
+            if (exists(operation[1])) {
+                logger.debug(String.join(System.getProperty("line.separator"), "批量重命名失败，目标已存在。", operation[1].toString()));
+                return false;
+            }
+            if (!Files.isDirectory(operation[1].getParent())) {
+                logger.debug(String.join(System.getProperty("line.separator"), "批量重命名失败，目标目录不存在。", operation[1].getParent().toString()));
+                return false;
+            }
+        }
+
+        // 任一路径不能位于另一路径之下：移动目录后其下的路径随之改变，无法再根据文件状态判断操作是否已执行
+        for (Path path : paths) {
+            for (Path parent = path.getParent(); null != parent; parent = parent.getParent()) {
+                if (paths.contains(parent)) {
+                    logger.debug(String.join(System.getProperty("line.separator"), "批量重命名失败，路径嵌套。", parent.toString(), path.toString()));
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ATOMIC_MOVE（rename）会覆盖已存在的目标，执行前重新确认目标不存在，尽量缩小与其他进程竞争的窗口
+     */
+    private static boolean apply(Path from, Path to) {
+        if (exists(to)) {
+            logger.debug(String.join(System.getProperty("line.separator"), "移动文件失败，目标已存在。", from.toString(), to.toString()));
+            return false;
+        }
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+            FileUtil.metadataChanged(from.toString());
+            FileUtil.metadataChanged(to.toString());
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "移动文件失败。", from.toString(), to.toString(), e.getMessage()));
+            return false;
+        }
+    }
+
+    private static boolean exists(Path path) {
+        return Files.exists(path, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * 每行一个操作：源路径、制表符、目标路径、换行符，路径中的反斜杠、制表符、换行符转义；
+     * 写入后刷盘，并刷新所在目录，保证崩溃后日志文件本身可见
+     */
+    private static boolean writeJournal(String journalPath, List<Path[]> operations) {
+        StringBuilder sb = new StringBuilder();
+        for (Path[] operation : operations) {
+            sb.append(escape(operation[0].toString())).append('\t').append(escape(operation[1].toString())).append('\n');
+        }
+        Path path = Paths.get(journalPath).toAbsolutePath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException | SecurityException e) {
+            // CREATE_NEW：已存在的日志属于未恢复的批次，不能覆盖
+            logger.debug(String.join(System.getProperty("line.separator"), "写入日志失败。", journalPath, e.getMessage()));
+            return false;
+        }
+        forceDirectory(path.getParent());
+        return true;
+    }
+
+    /**
+     * 刷新目录，部分平台（如Windows）不能以读方式打开目录，此时忽略
+     */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "刷新目录失败。", dir.toString(), e.getMessage()));
+        }
+    }
+
+    /**
+     * 读取日志，最后一行没有换行符时视为写入时崩溃留下的不完整行并忽略（此时尚未执行任何操作），
+     * 其他无法解析的行说明日志已损坏，读取失败
+     */
+    private static List<Path[]> readJournal(String journalPath) {
+        String content;
+        try {
+            content = new String(Files.readAllBytes(Paths.get(journalPath)), StandardCharsets.UTF_8);
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "读取日志失败。", journalPath, e.getMessage()));
+            return null;
+        }
+
+        List<Path[]> operations = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String line = content.substring(start, end);
+            start = end + 1;
+            String[] parts = line.split("\t", -1);
+            String from = parts.length == 2 ? unescape(parts[0]) : null;
+            String to = parts.length == 2 ? unescape(parts[1]) : null;
+            if (null == from || null == to || from.isEmpty() || to.isEmpty()) {
+                logger.debug(String.join(System.getProperty("line.separator"), "读取日志失败，日志已损坏。", journalPath, line));
+                return null;
+            }
+            try {
+                operations.add(new Path[]{Paths.get(from), Paths.get(to)});
+            } catch (InvalidPathException e) {
+                logger.debug(String.join(System.getProperty("line.separator"), "读取日志失败，日志已损坏。", journalPath, e.getMessage()));
+                return null;
+            }
+        }
+        return operations;
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 还原转义，转义不合法时返回null
+     */
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i == s.length()) {
+                return null;
+            }
+            switch (s.charAt(i)) {
+                case '\\':
+                    sb.append('\\');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void deleteJournal(String journalPath) {
+        try {
+            Files.deleteIfExists(Paths.get(journalPath));
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "删除日志失败。", journalPath, e.getMessage()));
+        }
+    }
+}
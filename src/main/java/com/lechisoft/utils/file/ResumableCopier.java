@@ -0,0 +1,123 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+
+/**
+ * 可断点续传的分块拷贝：数据先写入目标目录下的“文件名.part”，每完成一块先刷盘，
+ * 再把已完成的字节数写入检查点文件“文件名.part.checkpoint”，中断后再次调用会从最后一个已刷盘的块继续
+ * 源文件的大小或最后修改时间发生变化时，从头重新拷贝；全部完成后原子重命名为目标文件（已存在则覆盖）并删除检查点
+ */
+final class ResumableCopier {
+
+    private static Logger logger = LoggerFactory.getLogger(ResumableCopier.class);
+
+    static final String PART_SUFFIX = ".part";
+    static final String CHECKPOINT_SUFFIX = ".part.checkpoint";
+
+    private ResumableCopier() {
+    }
+
+    static boolean copy(String path, String dirPath, boolean copyAttributes, long chunkSize) {
+        Path from = Paths.get(path);
+        Path to = Paths.get(dirPath, FileUtil.getFullName(path));
+        Path part = Paths.get(dirPath, FileUtil.getFullName(path) + PART_SUFFIX);
+        Path checkpoint = Paths.get(dirPath, FileUtil.getFullName(path) + CHECKPOINT_SUFFIX);
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(from, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+
+            long position = readCheckpoint(checkpoint, from, size, lastModified);
+            try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+
+                // 检查点之后写入的数据未必完整，截掉
+                if (out.size() < position) {
+                    position = 0;
+                }
+                out.truncate(position);
+
+                while (position < size) {
+                    long end = Math.min(position + chunkSize, size);
+                    ChannelTransfer.transfer(in, out, position, end, chunkSize);
+                    // 数据刷盘后再记录检查点，保证检查点之前的数据都已落盘
+                    out.force(false);
+                    position = end;
+                    writeCheckpoint(checkpoint, from, size, lastModified, position);
+                }
+            }
+
+            Files.move(part, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(checkpoint);
+            if (copyAttributes) {
+                ChannelTransfer.copyAttributes(from, to);
+            }
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "断点续传拷贝中断，可再次调用继续。", path, e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * 读取检查点，源文件不同或已变化时返回0
+     */
+    private static long readCheckpoint(Path checkpoint, Path from, long size, long lastModified) {
+        if (!Files.isRegularFile(checkpoint, LinkOption.NOFOLLOW_LINKS)) {
+            return 0L;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            properties.load(in);
+            String source = properties.getProperty("source");
+            String sizeValue = properties.getProperty("size");
+            String lastModifiedValue = properties.getProperty("lastModified");
+            String position = properties.getProperty("position");
+            if (null == source || null == sizeValue || null == lastModifiedValue || null == position) {
+                logger.debug(String.join(System.getProperty("line.separator"), "检查点文件损坏，缺少属性，重新拷贝。", checkpoint.toString()));
+                return 0L;
+            }
+            if (from.toAbsolutePath().toString().equals(source)
+                    && size == Long.parseLong(sizeValue)
+                    && lastModified == Long.parseLong(lastModifiedValue)) {
+                return Long.parseLong(position);
+            }
+            logger.debug(String.join(System.getProperty("line.separator"), "源文件已变化，重新拷贝。", from.toString()));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "检查点文件损坏，重新拷贝。", checkpoint.toString(), String.valueOf(e.getMessage())));
+        }
+        return 0L;
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免检查点本身写了一半
+     */
+    private static void writeCheckpoint(Path checkpoint, Path from, long size, long lastModified, long position) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("source", from.toAbsolutePath().toString());
+        properties.setProperty("size", String.valueOf(size));
+        properties.setProperty("lastModified", String.valueOf(lastModified));
+        properties.setProperty("position", String.valueOf(position));
+
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
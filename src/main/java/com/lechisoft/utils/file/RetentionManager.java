@@ -0,0 +1,360 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按保留策略清理目录树中的旧文件，可在后台定期执行
+ * 增量扫描：记住上次扫描的目录内容，目录的最后修改时间未变化（目录下没有文件增删）时不重新列出，
+ * 只重新读取其中各文件的属性，使持续增长的文件（如日志）按当前大小计入总量；
+ * 删除前重新读取待删除文件的属性，文件在上次扫描后被修改过则跳过，留待下次扫描重新判断
+ * 删除按batchSize分批进行，每批之间间隔batchInterval毫秒，避免集中删除造成I/O峰值
+ * 清理在单独的锁下执行，批间等待时不影响修改配置与close；close后正在进行的清理在下一批之前停止
+ */
+public class RetentionManager implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(RetentionManager.class);
+
+    // 最后修改时间距扫描开始不足该值的目录，下次仍然重新列出，避免同一时间戳内的修改被漏掉
+    private static final long RACY_WINDOW = 2000L;
+
+    private final Path root;
+    private final List<RetentionPolicy> policies = new ArrayList<>();
+    private final Map<Path, DirEntry> index = new HashMap<>();
+    private final AtomicLong totalReclaimedBytes = new AtomicLong();
+    private int batchSize = 100;
+    private long batchInterval = 100L;
+    private ScheduledExecutorService executor;
+    private volatile RetentionResult lastResult;
+    private volatile boolean closed;
+    // 保证同一时间只有一次清理，与配置使用的this分开
+    private final Object runLock = new Object();
+
+    /**
+     * @param path 要清理的目录路径，递归处理其下所有文件
+     */
+    public RetentionManager(String path) {
+        this.root = Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 添加保留策略，多个策略同时生效，超出任一策略的文件都会被删除
+     *
+     * @param policy 保留策略
+     * @return 当前对象
+     */
+    public synchronized RetentionManager addPolicy(RetentionPolicy policy) {
+        policies.add(policy);
+        return this;
+    }
+
+    /**
+     * 设置删除的批大小与批间隔
+     *
+     * @param batchSize     每批删除的文件数
+     * @param batchInterval 两批之间的间隔（毫秒）
+     * @return 当前对象
+     */
+    public synchronized RetentionManager setBatch(int batchSize, long batchInterval) {
+        this.batchSize = Math.max(1, batchSize);
+        this.batchInterval = Math.max(0L, batchInterval);
+        return this;
+    }
+
+    /**
+     * 在后台线程中每隔period毫秒执行一次清理
+     *
+     * @param period 执行间隔（毫秒）
+     * @throws IllegalArgumentException period不大于0
+     * @throws IllegalStateException    已关闭
+     */
+    public synchronized void schedule(long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("执行间隔必须大于0：" + period);
+        }
+        executor().scheduleWithFixedDelay(this::runQuietly, 0L, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在后台线程中执行一次清理
+     *
+     * @return 清理结果
+     * @throws IllegalStateException 已关闭
+     */
+    public synchronized CompletableFuture<RetentionResult> runAsync() {
+        return CompletableFuture.supplyAsync(this::run, executor());
+    }
+
+    /**
+     * 在当前线程中执行一次清理
+     *
+     * @return 清理结果
+     */
+    public RetentionResult run() {
+        List<RetentionPolicy> policies;
+        int batchSize;
+        long batchInterval;
+        synchronized (this) {
+            policies = new ArrayList<>(this.policies);
+            batchSize = this.batchSize;
+            batchInterval = this.batchInterval;
+        }
+
+        synchronized (runLock) {
+            RetentionResult result = new RetentionResult();
+            long now = System.currentTimeMillis();
+
+            // 增量扫描
+            List<FileEntry> files = new ArrayList<>();
+            Set<Path> seen = new LinkedHashSet<>();
+            scan(root, now, files, seen, result);
+            index.keySet().retainAll(seen);
+            result.setScanned(files.size());
+
+            // 按各策略选出要删除的文件，从最旧的开始删除
+            Set<FileEntry> victims = new LinkedHashSet<>();
+            for (RetentionPolicy policy : policies) {
+                select(policy, files, now, victims);
+            }
+            List<FileEntry> sorted = new ArrayList<>(victims);
+            sorted.sort(Comparator.comparingLong(e -> e.lastModified));
+
+            // 分批删除
+            for (int i = 0; i < sorted.size() && !closed; i++) {
+                if (i > 0 && i % batchSize == 0 && batchInterval > 0) {
+                    try {
+                        Thread.sleep(batchInterval);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (closed) {
+                        break;
+                    }
+                }
+                delete(sorted.get(i), result);
+            }
+
+            totalReclaimedBytes.addAndGet(result.getReclaimedBytes());
+            lastResult = result;
+            return result;
+        }
+    }
+
+    /**
+     * 最近一次清理的结果，尚未执行时为null
+     *
+     * @return 清理结果
+     */
+    public RetentionResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 累计释放的字节数
+     *
+     * @return 字节数
+     */
+    public long getTotalReclaimedBytes() {
+        return totalReclaimedBytes.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (null != executor) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "保留清理失败。", root.toString(), String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * 关闭后不再创建线程池，否则关闭后调度的任务会在新的线程池中一直运行
+     */
+    private ScheduledExecutorService executor() {
+        if (closed) {
+            throw new IllegalStateException("RetentionManager已关闭：" + root);
+        }
+        if (null == executor) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "file-retention");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * 扫描目录，目录未变化时使用上次的结果
+     */
+    private void scan(Path dir, long now, List<FileEntry> files, Set<Path> seen, RetentionResult result) {
+        long lastModified;
+        try {
+            lastModified = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).lastModifiedTime().toMillis();
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "读取目录属性失败。", dir.toString(), e.getMessage()));
+            return;
+        }
+        seen.add(dir);
+
+        DirEntry entry = index.get(dir);
+        if (null == entry || entry.lastModified != lastModified || entry.racy || !restat(entry)) {
+            entry = list(dir, lastModified, now);
+            if (null == entry) {
+                return;
+            }
+            index.put(dir, entry);
+            result.setRescannedDirectories(result.getRescannedDirectories() + 1);
+        }
+
+        files.addAll(entry.files);
+        for (Path subdir : entry.subdirs) {
+            scan(subdir, now, files, seen, result);
+        }
+    }
+
+    /**
+     * 列出目录，每项读取一次属性
+     */
+    private DirEntry list(Path dir, long lastModified, long now) {
+        DirEntry entry = new DirEntry(lastModified, lastModified >= now - RACY_WINDOW);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    entry.subdirs.add(path);
+                } else if (attributes.isRegularFile()) {
+                    entry.files.add(new FileEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+            return entry;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "列出目录失败。", dir.toString(), e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * 目录未变化时重新读取其中文件的大小与最后修改时间，有文件已不存在时返回false，由调用方重新列出
+     */
+    private static boolean restat(DirEntry entry) {
+        for (FileEntry file : entry.files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                file.size = attributes.size();
+                file.lastModified = attributes.lastModifiedTime().toMillis();
+            } catch (IOException | SecurityException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按策略选出要删除的文件
+     */
+    private static void select(RetentionPolicy policy, List<FileEntry> files, long now, Set<FileEntry> victims) {
+        ExtensionSet extensions = null == policy.getExtensions() ? null : new ExtensionSet(policy.getExtensions());
+        List<FileEntry> matched = new ArrayList<>();
+        for (FileEntry file : files) {
+            if (null == extensions || extensions.isEmpty() || extensions.matches(file.path.getFileName().toString())) {
+                matched.add(file);
+            }
+        }
+        // 从新到旧，保留前面的
+        matched.sort(Comparator.comparingLong((FileEntry e) -> e.lastModified).reversed());
+
+        long totalSize = 0L;
+        for (int i = 0; i < matched.size(); i++) {
+            FileEntry file = matched.get(i);
+            totalSize += file.size;
+            if ((policy.getMaxAge() > 0 && now - file.lastModified > policy.getMaxAge())
+                    || (policy.getMaxCount() > 0 && i >= policy.getMaxCount())
+                    || (policy.getMaxTotalSize() > 0 && totalSize > policy.getMaxTotalSize())) {
+                victims.add(file);
+            }
+        }
+    }
+
+    /**
+     * 删除前确认文件未变化
+     */
+    private void delete(FileEntry file, RetentionResult result) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.lastModifiedTime().toMillis() != file.lastModified) {
+                result.setSkipped(result.getSkipped() + 1);
+                return;
+            }
+            Files.delete(file.path);
+            FileUtil.metadataChanged(file.path.toString());
+            result.setDeleted(result.getDeleted() + 1);
+            result.setReclaimedBytes(result.getReclaimedBytes() + attributes.size());
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "删除文件失败。", file.path.toString(), e.getMessage()));
+            result.setSkipped(result.getSkipped() + 1);
+        }
+        // 目录内容已变化，下次重新列出
+        index.remove(file.path.getParent());
+    }
+
+    private static final class DirEntry {
+        final long lastModified;
+        final boolean racy;
+        final List<FileEntry> files = new ArrayList<>();
+        final List<Path> subdirs = new ArrayList<>();
+
+        DirEntry(long lastModified, boolean racy) {
+            this.lastModified = lastModified;
+            this.racy = racy;
+        }
+    }
+
+    private static final class FileEntry {
+        final Path path;
+        long size;
+        long lastModified;
+
+        FileEntry(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 保留策略，各项限制同时生效，超出任一项的文件从最旧的（按最后修改时间）开始删除
+ */
+public class RetentionPolicy {
+    // 最长保留时间（毫秒），小于等于0时不限制
+    private long maxAge;
+    // 匹配文件的总大小上限（字节），小于等于0时不限制
+    private long maxTotalSize;
+    // 匹配文件的最多个数，小于等于0时不限制
+    private int maxCount;
+    // 只对这些扩展名的文件生效（不区分大小写，如".log"），为空时对所有文件生效
+    private String[] extensions;
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public long getMaxTotalSize() {
+        return maxTotalSize;
+    }
+
+    public void setMaxTotalSize(long maxTotalSize) {
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public void setMaxCount(int maxCount) {
+        this.maxCount = maxCount;
+    }
+
+    public String[] getExtensions() {
+        return extensions;
+    }
+
+    public void setExtensions(String... extensions) {
+        this.extensions = extensions;
+    }
+}
@@ -0,0 +1,57 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 一次保留清理的结果
+ */
+public class RetentionResult {
+    // 扫描到的文件数
+    private long scanned;
+    // 重新列出的目录数，未变化的目录使用上次扫描的结果
+    private long rescannedDirectories;
+    // 删除的文件数
+    private long deleted;
+    // 删除失败或删除前已变化而跳过的文件数
+    private long skipped;
+    // 释放的字节数
+    private long reclaimedBytes;
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(long scanned) {
+        this.scanned = scanned;
+    }
+
+    public long getRescannedDirectories() {
+        return rescannedDirectories;
+    }
+
+    public void setRescannedDirectories(long rescannedDirectories) {
+        this.rescannedDirectories = rescannedDirectories;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    public void setReclaimedBytes(long reclaimedBytes) {
+        this.reclaimedBytes = reclaimedBytes;
+    }
+}
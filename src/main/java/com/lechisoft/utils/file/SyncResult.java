@@ -0,0 +1,56 @@
+package com.lechisoft.utils.file;
+
+/**
+ * 增量同步的结果
+ */
+public class SyncResult {
+    private boolean success;
+    // 拷贝的文件数
+    private long copied;
+    // 未变化而跳过的文件数
+    private long skipped;
+    // 删除的目标端多余文件或目录数
+    private long deleted;
+    // 拷贝的字节数
+    private long copiedBytes;
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public long getCopied() {
+        return copied;
+    }
+
+    public void setCopied(long copied) {
+        this.copied = copied;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    public void setCopiedBytes(long copiedBytes) {
+        this.copiedBytes = copiedBytes;
+    }
+}
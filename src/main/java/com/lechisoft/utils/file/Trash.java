@@ -0,0 +1,143 @@
+package com.lechisoft.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 安全模式删除使用的回收目录：待删除的文件或目录先原子移动到同一目录下的回收目录（同一文件系统，只是一次rename），
+ * 删除成功后由后台线程清除回收目录，失败时再原子移回原处
+ * 清除前先把回收目录重命名为“回收目录名.purge”，标记其内容可以丢弃；进程退出时等待正在进行的清除完成，
+ * 进程被强制结束留下的待清除目录，在下次于同一目录中使用回收目录时清除（还原失败而保留的回收目录没有该标记，不会被清除）
+ */
+final class Trash {
+
+    private static Logger logger = LoggerFactory.getLogger(Trash.class);
+
+    // 待清除的回收目录名的后缀
+    static final String PURGE_SUFFIX = ".purge";
+    // 进程退出时等待清除完成的最长时间（毫秒）
+    private static final long SHUTDOWN_TIMEOUT = 10000L;
+
+    // 单个后台线程依次清除，空闲时线程退出
+    private static final ExecutorService purger;
+    // 已清除过遗留回收目录的目录
+    private static final Set<Path> swept = ConcurrentHashMap.newKeySet();
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "file-trash-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        purger = executor;
+
+        // 守护线程不会阻止进程退出，退出时在前台等待清除完成
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                purger.shutdown();
+                try {
+                    if (!purger.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        logger.debug("等待清除回收目录超时，剩余的在下次使用时清除。");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "file-trash-shutdown"));
+        } catch (IllegalStateException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "注册退出清除失败。", e.getMessage()));
+        }
+    }
+
+    private Trash() {
+    }
+
+    /**
+     * 原子移动到回收目录，返回回收目录中的路径；不支持原子移动时抛出AtomicMoveNotSupportedException
+     */
+    static Path move(Path path, Path trashDir) throws IOException {
+        Path trashed = trashDir.resolve(path.getFileName());
+        Files.move(path, trashed, StandardCopyOption.ATOMIC_MOVE);
+        return trashed;
+    }
+
+    /**
+     * 从回收目录移回原处，优先原子移动
+     */
+    static boolean restore(Path trashed, Path path) {
+        try {
+            try {
+                Files.move(trashed, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(trashed, path);
+            }
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "还原文件失败，文件保留在回收目录中。", trashed.toString(), e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * 标记为待清除后，在后台线程中删除回收目录
+     */
+    static void purge(String trashPath) {
+        Path marked = Paths.get(trashPath + PURGE_SUFFIX);
+        try {
+            Files.move(Paths.get(trashPath), marked, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "标记回收目录失败。", trashPath, e.getMessage()));
+            marked = Paths.get(trashPath);
+        }
+        submit(marked);
+    }
+
+    /**
+     * 每个目录第一次使用回收目录时，清除之前的进程遗留的待清除回收目录
+     */
+    static void sweep(Path dir) {
+        if (!swept.add(dir.toAbsolutePath().normalize())) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "bak*" + PURGE_SUFFIX)) {
+            for (Path path : stream) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    logger.debug(String.join(System.getProperty("line.separator"), "清除遗留的回收目录。", path.toString()));
+                    submit(path);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            logger.debug(String.join(System.getProperty("line.separator"), "查找遗留的回收目录失败。", dir.toString(), e.getMessage()));
+        }
+    }
+
+    private static void submit(Path trashPath) {
+        try {
+            purger.execute(() -> {
+                if (!FileUtil.delete(trashPath.toString(), false)) {
+                    logger.debug(String.join(System.getProperty("line.separator"), "清除回收目录失败。", trashPath.toString()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 进程正在退出，留待下次使用时清除
+            logger.debug(String.join(System.getProperty("line.separator"), "进程正在退出，未清除回收目录。", trashPath.toString()));
+        }
+    }
+}
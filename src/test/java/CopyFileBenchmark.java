@@ -0,0 +1,43 @@
+import com.lechisoft.utils.file.CopyFilesOption;
+import com.lechisoft.utils.file.FileUtil;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+/**
+ * 对比Files.copy与FileChannel.transferTo拷贝大文件的耗时，不随单元测试运行
+ * 用法：java CopyFileBenchmark 源文件 目标目录 [分块大小MB] [轮数]
+ */
+public class CopyFileBenchmark {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("用法：java CopyFileBenchmark 源文件 目标目录 [分块大小MB] [轮数]");
+            return;
+        }
+        String path = args[0];
+        String dirPath = args[1];
+        long chunkSize = (args.length > 2 ? Long.parseLong(args[2]) : 64L) * 1024 * 1024;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        long size = new File(path).length();
+        String toPath = Paths.get(dirPath, FileUtil.getFullName(path)).toString();
+
+        for (int i = 0; i < rounds; i++) {
+            FileUtil.delete(toPath);
+            long start = System.nanoTime();
+            boolean r = FileUtil.copy(path, dirPath, true, CopyFilesOption.REPLACE_EXISTING);
+            print("Files.copy", r, size, System.nanoTime() - start);
+
+            FileUtil.delete(toPath);
+            start = System.nanoTime();
+            r = FileUtil.copyLargeFile(path, dirPath, true, CopyFilesOption.REPLACE_EXISTING, chunkSize);
+            print("transferTo", r, size, System.nanoTime() - start);
+        }
+        FileUtil.delete(toPath);
+    }
+
+    private static void print(String name, boolean r, long size, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-12s %s %8.2fs %10.1f MB/s%n", name, r ? "ok  " : "fail", seconds, size / 1024.0 / 1024.0 / seconds);
+    }
+}
@@ -1,15 +1,842 @@
+import com.lechisoft.utils.file.AsyncFileUtil;
+import com.lechisoft.utils.file.CancellationToken;
+import com.lechisoft.utils.file.CopyFilesOption;
+import com.lechisoft.utils.file.DirectoryPager;
+import com.lechisoft.utils.file.FileAttributeField;
+import com.lechisoft.utils.file.FileAttributes;
+import com.lechisoft.utils.file.FileAttributesStore;
+import com.lechisoft.utils.file.FileMatcher;
+import com.lechisoft.utils.file.FilePage;
 import com.lechisoft.utils.file.FileUtil;
+import com.lechisoft.utils.file.ListFilesCache;
 import com.lechisoft.utils.file.ListFilesOption;
+import com.lechisoft.utils.file.PruneRules;
+import com.lechisoft.utils.file.RenameBatch;
+import com.lechisoft.utils.file.RetentionManager;
+import com.lechisoft.utils.file.RetentionPolicy;
+import com.lechisoft.utils.file.RetentionResult;
+import com.lechisoft.utils.file.SyncResult;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 
 public class FileUtilTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 创建测试用的目录树
+    private String createTree() throws IOException {
+        Path root = folder.newFolder("tree").toPath();
+        Files.createDirectories(root.resolve("a/b/c"));
+        Files.createDirectories(root.resolve("d"));
+        Files.write(root.resolve("1.txt"), new byte[]{1});
+        Files.write(root.resolve("a/2.log"), new byte[]{1, 2});
+        Files.write(root.resolve("a/b/3.txt"), new byte[]{1, 2, 3});
+        Files.write(root.resolve("a/b/c/4.TXT"), new byte[]{1, 2, 3, 4});
+        Files.write(root.resolve("d/5.bin"), new byte[]{1, 2, 3, 4, 5});
+        return root.toString();
+    }
+
+    // 创建包含符号链接的目录：src/link指向src外的ext目录，ext/f.txt有9个字节
+    private String createLinkedTree() throws IOException {
+        Path ext = folder.newFolder("ext").toPath();
+        Files.write(ext.resolve("f.txt"), "123456789".getBytes());
+        Path src = folder.newFolder("src").toPath();
+        Files.write(src.resolve("1.txt"), new byte[]{1});
+        Files.createSymbolicLink(src.resolve("link"), ext.toAbsolutePath());
+        return src.toString();
+    }
+
+    @Test
+    public void streamFiles() throws IOException {
+        String root = createTree();
+        ListFilesOption[] options = {ListFilesOption.RECURSION, ListFilesOption.INCLUDE_EXTENSION};
+
+        List<File> expected = FileUtil.listFiles(root, options, ".txt");
+        try (Stream<File> stream = FileUtil.streamFiles(root, options, ".txt")) {
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+        assertEquals(3, expected.size());
+
+        try (Stream<File> stream = FileUtil.streamFiles(root, ListFilesOption.RECURSION)) {
+            assertEquals(FileUtil.listFiles(root, ListFilesOption.RECURSION), stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void listFilesParallel() throws IOException {
+        String root = createTree();
+        ListFilesOption[] options = {ListFilesOption.RECURSION};
+
+        List<File> expected = FileUtil.listFiles(root, options);
+        assertEquals(expected, FileUtil.listFilesParallel(root, options));
+
+        List<File> unordered = FileUtil.listFilesParallel(root, 2, false, options);
+        assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+        assertEquals(expected.size(), unordered.size());
+    }
+
+    @Test
+    public void listFileAttributes() throws IOException {
+        String root = createTree();
+        ListFilesOption[] options = {ListFilesOption.RECURSION, ListFilesOption.SORT_LAST_MODIFIED_ASC};
+
+        List<FileAttributes> attributes = FileUtil.listFileAttributes(root, options);
+        List<File> expected = FileUtil.listFiles(root, options);
+        assertEquals(expected.size(), attributes.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getPath(), attributes.get(i).getPath());
+            assertEquals(expected.get(i).isFile() ? expected.get(i).length() : attributes.get(i).getSize(), attributes.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void listFilesTop() throws IOException {
+        String root = createTree();
+        long time = System.currentTimeMillis();
+        for (File file : FileUtil.listFiles(root, ListFilesOption.RECURSION, ListFilesOption.IGNORE_DIRECTORY)) {
+            time -= 60000;
+            FileUtil.setLastModifiedTime(file.getPath(), time);
+        }
+
+        List<File> all = FileUtil.listFiles(root, ListFilesOption.RECURSION, ListFilesOption.IGNORE_DIRECTORY);
+        List<File> top = FileUtil.listFiles(root, 2, new ListFilesOption[]{ListFilesOption.RECURSION,
+                ListFilesOption.IGNORE_DIRECTORY, ListFilesOption.SORT_LAST_MODIFIED_DESC});
+        assertEquals(all.subList(0, 2), top);
+
+        File[] sorted = all.toArray(new File[0]);
+        FileUtil.sort(sorted, ListFilesOption.SORT_LAST_MODIFIED_ASC);
+        assertEquals(all.get(all.size() - 1), sorted[0]);
+    }
+
+    @Test
+    public void listFilesWithMatcher() throws IOException {
+        String root = createTree();
+
+        List<File> expected = FileUtil.listFiles(root, new ListFilesOption[]{ListFilesOption.RECURSION, ListFilesOption.INCLUDE_EXTENSION}, ".txt", ".bin");
+        assertEquals(expected, FileUtil.listFilesMatching(root, FileMatcher.extensions(".txt", ".bin"), ListFilesOption.RECURSION, ListFilesOption.IGNORE_DIRECTORY));
+        assertEquals(4, expected.size());
+
+        assertEquals(1, FileUtil.listFilesMatching(root, FileMatcher.glob("*.log"), ListFilesOption.RECURSION).size());
+        assertEquals(2, FileUtil.listFilesMatching(root, FileMatcher.regex("[0-9]\\.txt"), ListFilesOption.RECURSION).size());
+
+        // 原有的调用方式不产生重载歧义
+        assertEquals(FileUtil.listFiles(root), FileUtil.listFiles(root, null, null));
+        assertEquals(FileUtil.listFiles(root).size(), FileUtil.streamFiles(root, null, null).count());
+    }
+
+    @Test
+    public void listFilesWithPrune() throws IOException {
+        String root = createTree();
+        Files.write(Paths.get(root, ".gitignore"), Arrays.asList("# comment", "*.log", "/d/"));
+        ListFilesOption[] options = {ListFilesOption.RECURSION, ListFilesOption.IGNORE_DIRECTORY};
+
+        PruneRules prune = new PruneRules();
+        prune.setIgnoreFileName(".gitignore");
+        List<File> files = FileUtil.listFiles(root, prune, options);
+        assertEquals(new HashSet<>(Arrays.asList("1.txt", ".gitignore", "3.txt", "4.TXT")), new HashSet<>(names(files)));
+
+        prune = new PruneRules();
+        prune.setMaxDepth(2);
+        prune.setDirectoryMatcher(FileMatcher.glob("d"));
+        assertEquals(new HashSet<>(Arrays.asList("1.txt", ".gitignore", "2.log")), new HashSet<>(names(FileUtil.listFiles(root, prune, options))));
+        try (Stream<File> stream = FileUtil.streamFiles(root, prune, options)) {
+            assertEquals(3, stream.count());
+        }
+        assertEquals(3, FileUtil.listFileAttributes(root, prune, options).size());
+    }
+
+    @Test
+    public void findFiles() throws IOException {
+        String root = createTree();
+
+        File first = FileUtil.findFirst(root, FileMatcher.extensions(".txt"), ListFilesOption.RECURSION);
+        assertEquals(".txt", FileUtil.getExtension(first.getPath()).toLowerCase());
+        assertNull(FileUtil.findFirst(root, FileMatcher.glob("*.lock"), ListFilesOption.RECURSION));
+        assertEquals(2, FileUtil.findFiles(root, 2, null, FileMatcher.extensions(".txt"), ListFilesOption.RECURSION).size());
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        assertTrue(FileUtil.findFiles(root, 0, token, null, ListFilesOption.RECURSION).isEmpty());
+    }
+
+    @Test
+    public void listFilesPage() throws IOException {
+        Path dir = folder.newFolder("flat").toPath();
+        for (int i = 0; i < 25; i++) {
+            Files.write(dir.resolve(i + ".txt"), new byte[0]);
+        }
+
+        List<File> files = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            FilePage page = FileUtil.listFilesPage(dir.toString(), 10, cursor, null);
+            files.addAll(page.getFiles());
+            cursor = page.getCursor();
+            pages++;
+        } while (null != cursor);
+
+        assertEquals(3, pages);
+        assertEquals(FileUtil.listFiles(dir.toString()), files);
+
+        // 凭游标在新的DirectoryPager中继续，与接着保留的目录流读取的结果相同
+        cursor = FileUtil.listFilesPage(dir.toString(), 10, null, null).getCursor();
+        try (DirectoryPager pager = new DirectoryPager(dir.toString(), 10, cursor, null)) {
+            assertEquals(pager.nextPage().getFiles(), FileUtil.listFilesPage(dir.toString(), 10, cursor, null).getFiles());
+        }
+
+        // 中途不再继续时关闭保留的目录流，之后凭游标继续时从头读到游标处
+        cursor = FileUtil.listFilesPage(dir.toString(), 10, null, null).getCursor();
+        assertTrue(FileUtil.closeFilesPage(dir.toString(), cursor));
+        assertFalse(FileUtil.closeFilesPage(dir.toString(), cursor));
+        assertEquals(files.subList(10, 20), FileUtil.listFilesPage(dir.toString(), 10, cursor, null).getFiles());
+    }
+
+    @Test
+    public void listFilesCache() throws Exception {
+        String root = createTree();
+
+        try (ListFilesCache cache = new ListFilesCache(60000)) {
+            List<File> files = cache.listFiles(root, ListFilesOption.RECURSION);
+            assertEquals(FileUtil.listFiles(root, ListFilesOption.RECURSION), files);
+            assertEquals(files, cache.listFiles(root, ListFilesOption.RECURSION));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+
+            cache.invalidate(root);
+            cache.listFiles(root, ListFilesOption.RECURSION);
+            assertEquals(2, cache.getMissCount());
+
+            // 递归列出时子目录同样被监听，子目录变化后缓存失效
+            Files.write(Paths.get(root, "a", "b", "c", "new.txt"), new byte[]{1});
+            for (int i = 0; i < 100 && cache.size() > 0; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(0, cache.size());
+            assertEquals(files.size() + 1, cache.listFiles(root, ListFilesOption.RECURSION).size());
+        }
+    }
+
+    @Test
+    public void getFileAttributesProjection() throws IOException {
+        String root = createTree();
+        String path = Paths.get(root, "a", "b", "3.txt").toString();
+
+        FileAttributes attributes = FileUtil.getFileAttributes(path, FileAttributeField.SIZE, FileAttributeField.LAST_MODIFIED_TIME);
+        assertEquals(3, attributes.getSize());
+        assertEquals(FileUtil.getLastModifiedTime(path), attributes.getLastModifiedTime());
+        assertEquals(".txt", attributes.getExtension());
+        assertNull(attributes.getOwner());
+
+        FileAttributes all = FileUtil.getFileAttributes(path);
+        assertEquals(FileUtil.getOwner(path), all.getOwner());
+        assertTrue(all.isFile() && all.isReadable());
+
+        // 不存在的文件，无论是否读取属性都返回null
+        String missing = Paths.get(root, "missing.txt").toString();
+        assertNull(FileUtil.getFileAttributes(missing));
+        assertNull(FileUtil.getFileAttributes(missing, FileAttributeField.NAME));
+        assertNull(FileUtil.getFileAttributes(missing, FileAttributeField.HIDDEN));
+
+        // 隐藏的判断与listFileAttributes一致
+        Files.write(Paths.get(root, ".hidden"), new byte[]{1});
+        for (FileAttributes listed : FileUtil.listFileAttributes(root)) {
+            assertEquals(listed.isHidden(), FileUtil.getFileAttributes(listed.getPath(), FileAttributeField.HIDDEN).isHidden());
+        }
+    }
+
+    @Test
+    public void fileAttributesStore() throws IOException {
+        String root = createTree();
+        ListFilesOption[] options = {ListFilesOption.RECURSION};
+
+        List<FileAttributes> expected = FileUtil.listFileAttributes(root, options);
+        FileAttributesStore store = FileUtil.listFileAttributes(root, new FileAttributesStore(16), options);
+        assertEquals(expected.size(), store.size());
+
+        int i = 0;
+        for (FileAttributes attributes : store) {
+            FileAttributes e = expected.get(i++);
+            assertEquals(e.getPath(), attributes.getPath());
+            assertEquals(e.getName(), attributes.getName());
+            assertEquals(e.getExtension(), attributes.getExtension());
+            assertEquals(e.getSize(), attributes.getSize());
+            assertEquals(e.getLastModifiedTime(), attributes.getLastModifiedTime());
+            assertEquals(e.isDirectory(), attributes.isDirectory());
+        }
+
+        // 视图的修改写回容器
+        FileAttributes view = store.get(0);
+        view.setSize(42);
+        view.setPath(Paths.get(root, "x", "y.txt").toString());
+        view.setExtension(".bak");
+        view.setHidden(true);
+        assertEquals(42, store.getSize(0));
+        assertEquals("y.bak", store.getFullName(0));
+        assertEquals(Paths.get(root, "x").toString(), store.getParentPath(0));
+        assertTrue(store.get(0).isHidden());
+        assertEquals(expected.get(1).getPath(), store.getPath(1));
+    }
+
+    @Test
+    public void metadataCache() throws IOException {
+        String root = createTree();
+        String path = Paths.get(root, "new.txt").toString();
+
+        FileUtil.enableMetadataCache(100, 60000);
+        try {
+            assertFalse(FileUtil.exists(path));
+            Files.write(Paths.get(path), new byte[]{1});
+            // 其他途径创建的文件，在缓存有效期内不可见
+            assertFalse(FileUtil.exists(path));
+            FileUtil.invalidateMetadata(path);
+            assertTrue(FileUtil.isFile(path));
+
+            // FileUtil自身的操作自动使缓存失效
+            assertTrue(FileUtil.delete(path));
+            assertFalse(FileUtil.exists(path));
+
+            // 删除目录时其下缓存的路径一并失效，包括中间目录未被缓存的
+            String deep = Paths.get(root, "a", "b", "c", "4.TXT").toString();
+            assertTrue(FileUtil.isFile(deep));
+            assertTrue(FileUtil.delete(Paths.get(root, "a").toString()));
+            assertFalse(FileUtil.exists(deep));
+        } finally {
+            FileUtil.disableMetadataCache();
+        }
+    }
+
+    @Test
+    public void copyParallel() throws IOException {
+        String root = createTree();
+        String target = folder.newFolder("target").getPath();
+
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.REPLACE_EXISTING, 4));
+
+        String copied = Paths.get(target, "tree").toString();
+        List<File> expected = FileUtil.listFiles(root, ListFilesOption.RECURSION);
+        List<File> actual = FileUtil.listFiles(copied, ListFilesOption.RECURSION);
+        assertEquals(expected.size(), actual.size());
+        for (File file : expected) {
+            String relative = file.getPath().substring(root.length());
+            assertEquals(file.length(), new File(copied + relative).length());
+        }
+
+        // 被中断时等待正在拷贝的文件结束后再回滚，不留下已拷贝的文件
+        Path many = Paths.get(root, "many");
+        Files.createDirectories(many);
+        for (int i = 0; i < 500; i++) {
+            Files.write(many.resolve(i + ".tmp"), new byte[1024]);
+        }
+        String other = folder.newFolder("interrupted").getPath();
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(FileUtil.copy(root, other, true, CopyFilesOption.REPLACE_EXISTING, 4));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(FileUtil.listFiles(other).isEmpty());
+    }
+
+    @Test
+    public void copyLargeFile() throws IOException {
+        Path from = folder.newFile("large.bin").toPath();
+        byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+        new Random(1).nextBytes(bytes);
+        Files.write(from, bytes);
+        String target = folder.newFolder("large").getPath();
+
+        assertTrue(FileUtil.copyLargeFile(from.toString(), target, true, CopyFilesOption.REPLACE_EXISTING, 1024 * 1024));
+        Path to = Paths.get(target, "large.bin");
+        assertArrayEquals(bytes, Files.readAllBytes(to));
+        assertEquals(Files.getLastModifiedTime(from), Files.getLastModifiedTime(to));
+        assertFalse(FileUtil.copyLargeFile(from.toString(), target, true, null, 1024 * 1024));
+    }
+
+    @Test
+    public void copyLargeFileThroughSymlink() throws IOException {
+        String src = createLinkedTree();
+        String dst = folder.newFolder("dst").getPath();
+        FileUtil.setLargeFileTransfer(0, 1024 * 1024);
+        try {
+            assertTrue(FileUtil.copy(src, dst));
+        } finally {
+            FileUtil.setLargeFileTransfer(-1, 0);
+        }
+        // 经由符号链接拷贝到源文件自身时不能截断源文件
+        assertEquals(9, Files.size(Paths.get(folder.getRoot().getPath(), "ext", "f.txt")));
+    }
+
+    @Test
+    public void copyOverSymlinkTarget() throws IOException {
+        Path outside = folder.newFile("outside.txt").toPath();
+        Files.write(outside, "123456789".getBytes());
+        Path from = folder.newFile("over.bin").toPath();
+        Files.write(from, new byte[]{1, 2});
+        String large = folder.newFolder("over-large").getPath();
+        String progress = folder.newFolder("over-progress").getPath();
+        Files.createSymbolicLink(Paths.get(large, "over.bin"), outside.toAbsolutePath());
+        Files.createSymbolicLink(Paths.get(progress, "over.bin"), outside.toAbsolutePath());
+
+        // 目标处的符号链接被替换为普通文件，链接指向的树外文件不能被截断
+        assertTrue(FileUtil.copyLargeFile(from.toString(), large, true, CopyFilesOption.REPLACE_EXISTING, 1024));
+        assertTrue(FileUtil.copy(from.toString(), progress, true, CopyFilesOption.REPLACE_EXISTING, null, 0));
+        for (String dir : new String[]{large, progress}) {
+            Path to = Paths.get(dir, "over.bin");
+            assertFalse(Files.isSymbolicLink(to));
+            assertArrayEquals(new byte[]{1, 2}, Files.readAllBytes(to));
+        }
+        assertArrayEquals("123456789".getBytes(), Files.readAllBytes(outside));
+    }
+
+    @Test
+    public void sync() throws IOException {
+        String root = createTree();
+        String target = folder.newFolder("mirror").getPath();
+
+        SyncResult result = FileUtil.sync(root, target);
+        assertTrue(result.isSuccess());
+        assertEquals(5, result.getCopied());
+
+        Files.write(Paths.get(root, "1.txt"), new byte[]{9, 9});
+        Files.write(Paths.get(target, "tree", "extra.txt"), new byte[]{1});
+        result = FileUtil.sync(root, target, false, true);
+        assertTrue(result.isSuccess());
+        assertEquals(1, result.getCopied());
+        assertEquals(4, result.getSkipped());
+        assertEquals(1, result.getDeleted());
+        assertArrayEquals(new byte[]{9, 9}, Files.readAllBytes(Paths.get(target, "tree", "1.txt")));
+        assertFalse(FileUtil.exists(Paths.get(target, "tree", "extra.txt").toString()));
+
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.SYNC));
+        assertEquals(5, FileUtil.sync(root, target, true, false).getSkipped());
+    }
+
+    @Test
+    public void copyResumable() throws IOException {
+        Path from = folder.newFile("resume.bin").toPath();
+        byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+        new Random(2).nextBytes(bytes);
+        Files.write(from, bytes);
+        String target = folder.newFolder("resume").getPath();
+
+        // 模拟第一块之后中断：.part中第二块只写了一半，检查点记录第一块
+        int chunk = 1024 * 1024;
+        Files.write(Paths.get(target, "resume.bin.part"), Arrays.copyOf(bytes, chunk + chunk / 2));
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("source", from.toAbsolutePath().toString());
+        checkpoint.setProperty("size", String.valueOf(bytes.length));
+        checkpoint.setProperty("lastModified", String.valueOf(Files.getLastModifiedTime(from).toMillis()));
+        checkpoint.setProperty("position", String.valueOf(chunk));
+        try (OutputStream out = Files.newOutputStream(Paths.get(target, "resume.bin.part.checkpoint"))) {
+            checkpoint.store(out, null);
+        }
+
+        assertTrue(FileUtil.copyResumable(from.toString(), target, true, chunk));
+        assertArrayEquals(bytes, Files.readAllBytes(Paths.get(target, "resume.bin")));
+        assertFalse(FileUtil.exists(Paths.get(target, "resume.bin.part").toString()));
+        assertFalse(FileUtil.exists(Paths.get(target, "resume.bin.part.checkpoint").toString()));
+
+        // 检查点缺少属性时视为损坏，从头拷贝
+        Files.delete(Paths.get(target, "resume.bin"));
+        Files.write(Paths.get(target, "resume.bin.part"), new byte[chunk]);
+        checkpoint.remove("position");
+        try (OutputStream out = Files.newOutputStream(Paths.get(target, "resume.bin.part.checkpoint"))) {
+            checkpoint.store(out, null);
+        }
+        assertTrue(FileUtil.copyResumable(from.toString(), target, true, chunk));
+        assertArrayEquals(bytes, Files.readAllBytes(Paths.get(target, "resume.bin")));
+    }
+
+    @Test
+    public void copyRollback() throws IOException {
+        String root = createTree();
+        String target = folder.newFolder("rollback").getPath();
+        Path keep = Paths.get(target, "tree", "keep.txt");
+        Path blocker = Paths.get(target, "tree", "a", "b", "3.txt", "x");
+        Files.createDirectories(blocker.getParent());
+        Files.write(keep, new byte[]{1});
+        Files.write(blocker, new byte[]{1});
+
+        // a/b/3.txt在目标端是非空目录，拷贝失败后只删除新创建的，已存在的保留
+        String journal = Paths.get(folder.getRoot().getPath(), "copy.journal").toString();
+        assertFalse(FileUtil.copy(root, target, true, CopyFilesOption.SYNC, journal));
+        assertTrue(FileUtil.exists(keep.toString()));
+        assertTrue(FileUtil.exists(blocker.toString()));
+        assertFalse(FileUtil.exists(Paths.get(target, "tree", "1.txt").toString()));
+        assertFalse(FileUtil.exists(Paths.get(target, "tree", "d").toString()));
+        assertFalse(FileUtil.exists(journal));
+
+        // 模拟崩溃后遗留的日志
+        String copied = Paths.get(target, "copied.txt").toString();
+        Files.write(Paths.get(copied), new byte[]{1});
+        Files.write(Paths.get(journal), Arrays.asList(copied, ""));
+        assertTrue(FileUtil.rollbackCopy(journal));
+        assertFalse(FileUtil.exists(copied));
+        assertFalse(FileUtil.exists(journal));
+
+        // 没有换行结尾的最后一行只写了一半，不能按它删除
+        Files.write(Paths.get(copied), new byte[]{1});
+        Files.write(Paths.get(journal), target.getBytes(StandardCharsets.UTF_8));
+        assertTrue(FileUtil.rollbackCopy(journal));
+        assertTrue(FileUtil.exists(target));
+    }
+
+    @Test
+    public void copyReplaceExisting() throws IOException {
+        String root = createTree();
+        String target = folder.newFolder("replace").getPath();
+        Path copied = Paths.get(target, "tree", "a", "b", "3.txt");
+
+        // 再次拷贝到已存在的目录树上，沿用已存在的目录，覆盖其中的文件
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.REPLACE_EXISTING));
+        Files.write(Paths.get(root, "a", "b", "3.txt"), new byte[]{7});
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.REPLACE_EXISTING));
+        assertArrayEquals(new byte[]{7}, Files.readAllBytes(copied));
+
+        Files.write(Paths.get(root, "a", "b", "3.txt"), new byte[]{8});
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.REPLACE_EXISTING, 4));
+        assertArrayEquals(new byte[]{8}, Files.readAllBytes(copied));
+
+        Files.write(Paths.get(root, "a", "b", "3.txt"), new byte[]{9});
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.REPLACE_EXISTING, null, 0));
+        assertArrayEquals(new byte[]{9}, Files.readAllBytes(copied));
+        assertEquals(FileUtil.listFiles(root, ListFilesOption.RECURSION).size(),
+                FileUtil.listFiles(Paths.get(target, "tree").toString(), ListFilesOption.RECURSION).size());
+    }
+
+    @Test
+    public void copyWithProgress() throws IOException {
+        String root = createTree();
+        String target = folder.newFolder("progress").getPath();
+
+        List<Long> bytes = new ArrayList<>();
+        assertTrue(FileUtil.copy(root, target, true, CopyFilesOption.REPLACE_EXISTING, progress -> {
+            assertEquals(5, progress.getTotalFiles());
+            assertEquals(15, progress.getTotalBytes());
+            bytes.add(progress.getBytesDone());
+        }, 0));
+        assertEquals(Long.valueOf(15), bytes.get(bytes.size() - 1));
+        assertEquals(FileUtil.listFiles(root, ListFilesOption.RECURSION).size(),
+                FileUtil.listFiles(Paths.get(target, "tree").toString(), ListFilesOption.RECURSION).size());
+
+        // 首秒的突发之后，剩余200000字节按100000字节/秒限速
+        Path from = folder.newFile("throttle.bin").toPath();
+        Files.write(from, new byte[300000]);
+        String throttled = folder.newFolder("throttled").getPath();
+        long start = System.currentTimeMillis();
+        assertTrue(FileUtil.copy(from.toString(), throttled, true, CopyFilesOption.REPLACE_EXISTING, null, 100000));
+        assertTrue(System.currentTimeMillis() - start >= 1500);
+        assertEquals(300000, Files.size(Paths.get(throttled, "throttle.bin")));
+    }
+
+    @Test
+    public void copyWithProgressThroughSymlink() throws IOException {
+        String src = createLinkedTree();
+        String dst = folder.newFolder("dst").getPath();
+
+        assertTrue(FileUtil.copy(src, dst, true, CopyFilesOption.REPLACE_EXISTING, progress -> {
+        }, 0));
+        // 符号链接作为链接拷贝，不进入链接指向的目录
+        Path link = Paths.get(dst, "src", "link");
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(9, Files.size(Paths.get(folder.getRoot().getPath(), "ext", "f.txt")));
+
+        // 目标经由符号链接指向源文件本身时，不截断源文件
+        Path ext = Paths.get(folder.getRoot().getPath(), "ext");
+        assertTrue(FileUtil.copy(ext.resolve("f.txt").toString(), link.toString(), true, CopyFilesOption.REPLACE_EXISTING, null, 1000));
+        assertEquals(9, Files.size(ext.resolve("f.txt")));
+    }
+
+    @Test
+    public void asyncFileUtil() throws Exception {
+        String root = createTree();
+        String target = folder.newFolder("async").getPath();
+
+        assertTrue(AsyncFileUtil.copy(root, target).get());
+        String copied = Paths.get(target, "tree").toString();
+        Path file = Paths.get(copied, "1.txt");
+        assertTrue(AsyncFileUtil.writeBytes(file.toString(), new byte[]{7}, StandardOpenOption.TRUNCATE_EXISTING).get());
+        assertArrayEquals(new byte[]{7}, AsyncFileUtil.readBytes(file.toString()).get());
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        String other = folder.newFolder("async2").getPath();
+        assertFalse(AsyncFileUtil.copy(root, other, true, CopyFilesOption.REPLACE_EXISTING, token).get());
+        assertTrue(FileUtil.listFiles(other).isEmpty());
+        assertFalse(AsyncFileUtil.delete(copied, token).get());
+        assertTrue(FileUtil.exists(copied));
+        assertTrue(AsyncFileUtil.delete(copied).get());
+        assertFalse(FileUtil.exists(copied));
+    }
+
+    @Test
+    public void safeDelete() throws Exception {
+        String root = createTree();
+        String parent = FileUtil.getParentPath(root);
+
+        assertTrue(FileUtil.delete(root, true));
+        assertFalse(FileUtil.exists(root));
+        // 回收目录由后台线程清除
+        for (int i = 0; i < 50 && FileUtil.listFiles(parent).size() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(FileUtil.listFiles(parent).isEmpty());
+
+        root = createTree();
+        List<File> files = Arrays.asList(new File(root, "1.txt"), new File(root, "a/2.log"), new File(root, "missing.txt"));
+        assertFalse(FileUtil.delete(files, true));
+        assertTrue(FileUtil.exists(Paths.get(root, "1.txt").toString()));
+        assertTrue(FileUtil.exists(Paths.get(root, "a", "2.log").toString()));
+        // 回收目录已删除
+        assertEquals(5, FileUtil.listFiles(root).size() + FileUtil.listFiles(Paths.get(root, "a").toString()).size());
+
+        // 之前的进程遗留的待清除回收目录在第一次使用时清除，未标记的回收目录保留
+        Path left = Paths.get(root, "d", "bak0123.purge", "x");
+        Files.createDirectories(left);
+        Files.write(left.resolve("y.txt"), new byte[]{1});
+        Path kept = Files.createDirectories(Paths.get(root, "d", "bak4567"));
+        assertTrue(FileUtil.delete(Arrays.asList(new File(root, "d/5.bin")), true));
+        for (int i = 0; i < 50 && FileUtil.listFiles(Paths.get(root, "d").toString()).size() > 1; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(Arrays.asList(kept.toFile()), FileUtil.listFiles(Paths.get(root, "d").toString()));
+    }
+
+    @Test
+    public void deleteParallel() throws IOException {
+        String root = createTree();
+        Path many = Paths.get(root, "many");
+        Files.createDirectories(many);
+        for (int i = 0; i < 600; i++) {
+            Files.write(many.resolve(i + ".tmp"), new byte[]{1});
+        }
+
+        assertTrue(FileUtil.delete(root, 4));
+        assertFalse(FileUtil.exists(root));
+        assertFalse(FileUtil.delete(root, 4));
+    }
+
+    @Test
+    public void retention() throws IOException {
+        Path dir = folder.newFolder("logs").toPath();
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            Path log = dir.resolve(i + ".log");
+            Files.write(log, new byte[10]);
+            FileUtil.setLastModifiedTime(log.toString(), time - i * 60000L);
+        }
+        Files.write(dir.resolve("keep.txt"), new byte[10]);
+        FileUtil.setLastModifiedTime(dir.resolve("keep.txt").toString(), time - 86400000L * 30);
+
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setExtensions(".log");
+        policy.setMaxCount(2);
+        try (RetentionManager manager = new RetentionManager(dir.toString()).addPolicy(policy)) {
+            RetentionResult result = manager.run();
+            assertEquals(6, result.getScanned());
+            assertEquals(3, result.getDeleted());
+            assertEquals(30, result.getReclaimedBytes());
+            assertEquals(new HashSet<>(Arrays.asList("0.log", "1.log", "keep.txt")), new HashSet<>(names(FileUtil.listFiles(dir.toString()))));
+
+            // 目录未变化时不重新列出
+            FileUtil.setLastModifiedTime(dir.toString(), time - 60000L);
+            assertEquals(1, manager.run().getRescannedDirectories());
+            result = manager.run();
+            assertEquals(0, result.getRescannedDirectories());
+            assertEquals(0, result.getDeleted());
+            assertEquals(30, manager.getTotalReclaimedBytes());
+
+            // 目录未变化时仍按文件的当前大小计算总量
+            Files.write(dir.resolve("1.log"), new byte[10], StandardOpenOption.APPEND);
+            FileUtil.setLastModifiedTime(dir.resolve("1.log").toString(), time - 60000L);
+            FileUtil.setLastModifiedTime(dir.toString(), time - 60000L);
+            RetentionPolicy quota = new RetentionPolicy();
+            quota.setExtensions(".log");
+            quota.setMaxTotalSize(25);
+            result = manager.addPolicy(quota).run();
+            assertEquals(0, result.getRescannedDirectories());
+            assertEquals(1, result.getDeleted());
+            assertFalse(Files.exists(dir.resolve("1.log")));
+
+            try {
+                manager.schedule(0);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // 执行间隔必须大于0
+            }
+            manager.close();
+            try {
+                manager.runAsync();
+                fail();
+            } catch (IllegalStateException e) {
+                // 关闭后不能再调度
+            }
+        }
+    }
+
+    @Test
+    public void move() throws IOException {
+        String root = createTree();
+        List<File> expected = FileUtil.listFiles(root, ListFilesOption.RECURSION);
+        String target = folder.newFolder("moved").getPath();
+
+        assertTrue(FileUtil.move(root, target));
+        assertFalse(FileUtil.exists(root));
+        String moved = Paths.get(target, "tree").toString();
+        assertEquals(expected.size(), FileUtil.listFiles(moved, ListFilesOption.RECURSION).size());
+        assertFalse(FileUtil.move(moved, target));
+
+        // 移动到自身之下失败，不留下创建的目录
+        assertFalse(FileUtil.move(moved, Paths.get(moved, "a", "x", "y").toString()));
+        assertFalse(FileUtil.exists(Paths.get(moved, "a", "x").toString()));
+
+        // 跨文件系统时逐个文件拷贝后删除
+        Path shm = Paths.get("/dev/shm");
+        if (Files.isWritable(shm) && !Files.getFileStore(shm).equals(Files.getFileStore(Paths.get(target)))) {
+            String other = Files.createTempDirectory(shm, "move").toString();
+            try {
+                assertTrue(FileUtil.move(moved, other));
+                assertFalse(FileUtil.exists(moved));
+                assertEquals(expected.size(), FileUtil.listFiles(Paths.get(other, "tree").toString(), ListFilesOption.RECURSION).size());
+                assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(Paths.get(other, "tree", "a", "b", "3.txt")));
+            } finally {
+                FileUtil.delete(other);
+            }
+        }
+    }
+
+    @Test
+    public void renameBatch() throws IOException {
+        String root = createTree();
+        String journal = Paths.get(folder.getRoot().getPath(), "rename.journal").toString();
+
+        assertTrue(new RenameBatch(journal)
+                .rename(Paths.get(root, "1.txt").toString(), "one.txt")
+                .move(Paths.get(root, "a", "2.log").toString(), Paths.get(root, "d").toString())
+                .commit());
+        assertTrue(FileUtil.exists(Paths.get(root, "one.txt").toString()));
+        assertTrue(FileUtil.exists(Paths.get(root, "d", "2.log").toString()));
+        assertFalse(FileUtil.exists(journal));
+
+        // 第二个操作的源不存在，整批不执行
+        assertFalse(new RenameBatch(journal)
+                .rename(Paths.get(root, "one.txt").toString(), "1.txt")
+                .rename(Paths.get(root, "missing.txt").toString(), "2.txt")
+                .commit());
+        assertTrue(FileUtil.exists(Paths.get(root, "one.txt").toString()));
+
+        // 模拟崩溃：日志已写入，只执行了第一个操作
+        Path from = Paths.get(root, "one.txt").toAbsolutePath();
+        Path to = Paths.get(root, "1.txt").toAbsolutePath();
+        Path from2 = Paths.get(root, "d", "5.bin").toAbsolutePath();
+        Path to2 = Paths.get(root, "five.bin").toAbsolutePath();
+        Files.write(Paths.get(journal), Arrays.asList(from + "\t" + to, from2 + "\t" + to2));
+        Files.move(from, to);
+        assertTrue(RenameBatch.recover(journal, false));
+        assertTrue(Files.exists(from));
+        assertFalse(Files.exists(to));
+        assertTrue(Files.exists(from2));
+
+        Files.write(Paths.get(journal), Arrays.asList(from + "\t" + to, from2 + "\t" + to2));
+        Files.move(from, to);
+        assertTrue(RenameBatch.recover(journal, true));
+        assertTrue(Files.exists(to));
+        assertTrue(Files.exists(to2));
+        assertFalse(FileUtil.exists(journal));
+
+        // 目标目录不存在时整批不执行，也不创建目录
+        assertFalse(new RenameBatch(journal)
+                .move(to.toString(), Paths.get(root, "x", "y").toString())
+                .commit());
+        assertTrue(Files.exists(to));
+        assertFalse(FileUtil.exists(Paths.get(root, "x").toString()));
+
+        // 目录与其下的文件在同一批中时整批不执行
+        assertFalse(new RenameBatch(journal)
+                .rename(Paths.get(root, "a").toString(), "aa")
+                .rename(Paths.get(root, "a", "b", "3.txt").toString(), "three.txt")
+                .commit());
+        assertFalse(new RenameBatch(journal)
+                .move(Paths.get(root, "d").toString(), Paths.get(root, "a").toString())
+                .rename(Paths.get(root, "a").toString(), "aa")
+                .commit());
+        assertTrue(Files.exists(Paths.get(root, "a", "b", "3.txt")));
+        assertTrue(Files.exists(Paths.get(root, "d")));
+        assertFalse(FileUtil.exists(journal));
+
+        // 文件名中的制表符、换行符、反斜杠经日志转义后能正确恢复
+        Path odd = Paths.get(root, "a\tb\nc\\d").toAbsolutePath();
+        String escaped = odd.toString().replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+        Files.write(Paths.get(journal), (to + "\t" + escaped + "\n").getBytes("UTF-8"));
+        assertTrue(RenameBatch.recover(journal, true));
+        assertTrue(Files.exists(odd));
+        assertFalse(Files.exists(to));
+
+        // 无法解析的行使恢复失败，最后一行不完整时忽略该行
+        Files.write(Paths.get(journal), ("garbage\n" + escaped + "\t" + to + "\n").getBytes("UTF-8"));
+        assertFalse(RenameBatch.recover(journal, true));
+        assertTrue(Files.exists(odd));
+        Files.write(Paths.get(journal), (escaped + "\t" + to + "\n" + to2 + "\t" + from2).getBytes("UTF-8"));
+        assertTrue(RenameBatch.recover(journal, true));
+        assertTrue(Files.exists(to));
+        assertTrue(Files.exists(to2));
+    }
+
+    @Test
+    public void moveAcrossDevicesWithSymlink() throws IOException {
+        Path shm = Paths.get("/dev/shm");
+        String src = createLinkedTree();
+        if (!Files.isWritable(shm) || Files.getFileStore(shm).equals(Files.getFileStore(Paths.get(src)))) {
+            return;
+        }
+        String other = Files.createTempDirectory(shm, "move").toString();
+        try {
+            assertTrue(FileUtil.move(src, other));
+            assertFalse(Files.exists(Paths.get(src), LinkOption.NOFOLLOW_LINKS));
+            assertTrue(Files.isSymbolicLink(Paths.get(other, "src", "link")));
+            // 符号链接指向的树外文件不能被删除
+            assertEquals(9, Files.size(Paths.get(folder.getRoot().getPath(), "ext", "f.txt")));
+        } finally {
+            FileUtil.delete(other);
+        }
+    }
+
+    private static List<String> names(List<File> files) {
+        return files.stream().map(File::getName).collect(Collectors.toList());
+    }
+
     @Test
     public void getFiles() {
         List<File> files = FileUtil.listFiles("/Users/zhanghao/Desktop/xxx");